@@ -23,6 +23,24 @@ repositories {
     mavenCentral()
 }
 
+// JMH benchmarks for the scan/encode/persist hot paths: ./gradlew jmh (-Pjmh.args="PngBenchmark -f 1")
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+}
+
+// headless load test, kept out of the mod jar: ./gradlew replay (see below)
+val replay: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+}
+
+// SQLite JDBC driver for running outside the game (benchmarks, replay); in game the client provides it
+val sqliteDriver: Configuration by configurations.creating
+configurations["jmhRuntimeOnly"].extendsFrom(sqliteDriver)
+configurations["testRuntimeOnly"].extendsFrom(sqliteDriver)
+configurations["replayRuntimeOnly"].extendsFrom(sqliteDriver)
+
 dependencies {
     minecraft(libs.minecraft)
     mappings(libs.yarn)
@@ -41,6 +59,15 @@ dependencies {
     // 3. Enable the line below (remove the leading //)
     //
 //     modCompileOnly(files("libs/Baritone 1.21.4.jar"))
+
+    // --- BENCHMARKS -----------------------------------------------------
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+    sqliteDriver("org.xerial:sqlite-jdbc:3.46.1.3")
+
+    // --- TESTS ----------------------------------------------------------
+    testImplementation("org.junit.jupiter:junit-jupiter:5.11.3")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.11.3")
 }
 
 tasks {
@@ -72,6 +99,27 @@ tasks {
         targetCompatibility = JavaVersion.VERSION_21
     }
 
+    register<JavaExec>("jmh") {
+        group = "benchmark"
+        description = "Runs the JMH benchmarks in src/jmh (pass JMH options with -Pjmh.args=\"...\")."
+        classpath = jmh.runtimeClasspath
+        mainClass = "org.openjdk.jmh.Main"
+        args((project.findProperty("jmh.args") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf())
+    }
+
+    // headless load test: ./gradlew replay -Preplay.args="mapframe_archive/captures/maps-....mscap --speed max"
+    register<JavaExec>("replay") {
+        group = "benchmark"
+        description = "Replays capture files through the scan pipeline against a local stub webhook."
+        classpath = replay.runtimeClasspath
+        mainClass = "com.frames.ReplayDriver"
+        args((project.findProperty("replay.args") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf())
+    }
+
+    test {
+        useJUnitPlatform()
+    }
+
     withType<JavaCompile> {
         options.encoding = "UTF-8"
         options.release = 21
@@ -0,0 +1,55 @@
+package com.frames;
+
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keys built for every map and sign the scanners look at: the 64-bit hashes used in memory and the sign archive's
+ * primary key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DedupeKeyBenchmark {
+    private byte[] colors;
+    private BlockPos pos;
+    private String front;
+    private String back;
+
+    @Setup
+    public void setup() {
+        colors = Payloads.mapArt(3);
+        pos = new BlockPos(1_234_567, 64, -7_654_321);
+        front = "Welcome to\nthe highway\nspawn: 0 0\n-- 2b2t --";
+        back = "";
+    }
+
+    @Benchmark
+    public long mapContentHash() {
+        return ContentHash.hash64(colors, 0, Payloads.SIZE);
+    }
+
+    @Benchmark
+    public long signDedupeKey() {
+        return SignArchiveDb.dedupeKey(pos.asLong(), front, back);
+    }
+
+    @Benchmark
+    public long signArchiveId() {
+        return SignArchiveDb.signId("minecraft:overworld", "2b2t.org", pos.asLong(), front, back);
+    }
+}
@@ -0,0 +1,50 @@
+package com.frames;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map colour bytes to RGB, as done for every map encoded without indexed-png.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaletteBenchmark {
+    @Param({"mapArt", "noise"})
+    public String payload;
+
+    private byte[] colors;
+    private int[] lut;
+    private final int[] pixels = new int[Payloads.SIZE];
+
+    @Setup
+    public void setup() {
+        colors = Payloads.payload(payload, 1);
+        lut = Payloads.stubPalette();
+    }
+
+    @Benchmark
+    public int[] toRgb() {
+        MapPalette.toRgb(colors, lut, pixels);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] buildTable() {
+        return Payloads.stubPalette();
+    }
+}
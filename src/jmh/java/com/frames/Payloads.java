@@ -0,0 +1,68 @@
+package com.frames;
+
+import java.util.Random;
+
+/**
+ * Synthetic inputs for the benchmarks, so they run without launching Minecraft.
+ */
+final class Payloads {
+    static final int SIZE = 128 * 128;
+
+    private Payloads() {}
+
+    /**
+     * Stand-in for {@code MapColor.getRenderColor}: 62 base colours times 4 shades, like the real table.
+     */
+    static int[] stubPalette() {
+        return MapPalette.build(index -> {
+            int base = index >> 2;
+            int shade = switch (index & 3) {
+                case 0 -> 180;
+                case 1 -> 220;
+                case 2 -> 255;
+                default -> 135;
+            };
+            int r = (base * 97) & 0xFF;
+            int g = (base * 57 + 40) & 0xFF;
+            int b = (base * 23 + 90) & 0xFF;
+            return (r * shade / 255) << 16 | (g * shade / 255) << 8 | (b * shade / 255);
+        });
+    }
+
+    /**
+     * Typical map art: a handful of colours in large flat areas with shaded edges and a little dithering.
+     */
+    static byte[] mapArt(long seed) {
+        Random random = new Random(seed);
+        int[] colours = new int[6];
+        for (int i = 0; i < colours.length; i++) colours[i] = 4 + random.nextInt(60) * 4;
+
+        byte[] out = new byte[SIZE];
+        for (int y = 0; y < 128; y++) {
+            for (int x = 0; x < 128; x++) {
+                int region = ((x / 24) + (y / 32) * 3 + (x * y / 700)) % colours.length;
+                int shade = (x + y) % 17 == 0 ? 0 : (random.nextInt(40) == 0 ? 3 : 1);
+                out[y * 128 + x] = (byte) (colours[region] + shade);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Worst case for compression: every pixel an independent random colour.
+     */
+    static byte[] noise(long seed) {
+        Random random = new Random(seed);
+        byte[] out = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) out[i] = (byte) (4 + random.nextInt(248));
+        return out;
+    }
+
+    static byte[] payload(String kind, long seed) {
+        return switch (kind) {
+            case "mapArt" -> mapArt(seed);
+            case "noise" -> noise(seed);
+            default -> throw new IllegalArgumentException("Unknown payload: " + kind);
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.frames;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two ways MapProcessor encodes a map: the indexed encoder and the 24-bit ImageIO path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PngBenchmark {
+    @Param({"mapArt", "noise"})
+    public String payload;
+
+    private byte[] colors;
+    private int[] lut;
+
+    @Setup
+    public void setup() {
+        colors = Payloads.payload(payload, 2);
+        lut = Payloads.stubPalette();
+    }
+
+    @Benchmark
+    public byte[] indexed() {
+        return MapPng.encodeIndexed(colors, 128, 128, lut);
+    }
+
+    @Benchmark
+    public byte[] imageIoRgb() throws IOException {
+        // same steps as MapProcessor.mapToImage + imageToPng
+        BufferedImage img = new BufferedImage(128, 128, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        MapPalette.toRgb(colors, lut, pixels);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "PNG", out);
+        return out.toByteArray();
+    }
+}
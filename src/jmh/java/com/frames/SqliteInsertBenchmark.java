@@ -0,0 +1,84 @@
+package com.frames;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Per-map cost of archiving {@link #ROWS} new maps into a temp file: one transaction per row (the old
+ * {@code upsertMap} path) against one transaction for the whole batch (what the write-behind stage does).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SqliteInsertBenchmark {
+    private static final int ROWS = 100;
+
+    private Path dir;
+    private ScanDb db;
+    private byte[] colors;
+    private byte[] png;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        dir = Files.createTempDirectory("map-scanner-jmh");
+        // no write-behind lane or outbox drainer running beside the measured inserts
+        db = new ScanDb(dir.resolve("map_archive.db"), false);
+        colors = Payloads.mapArt(4);
+        png = MapPng.encodeIndexed(colors, 128, 128, Payloads.stubPalette());
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    private List<ScanDb.MapRow> rows() {
+        List<ScanDb.MapRow> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            long id = next++;
+            // fresh ids and hashes so every row is a real insert of both the map and its blob
+            rows.add(new ScanDb.MapRow("map_" + id, "minecraft:overworld", (int) id, 64, 0, png, colors, id));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleRow() throws Exception {
+        for (ScanDb.MapRow row : rows()) {
+            db.upsertMap(row.mapId, row.dimension, row.x, row.y, row.z, row.png, row.colors, row.contentHash);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void batched() throws Exception {
+        db.upsertMaps(rows());
+    }
+}
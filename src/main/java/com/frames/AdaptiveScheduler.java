@@ -0,0 +1,88 @@
+package com.frames;
+
+/**
+ * Decides when a scanner's next full scan is due.
+ * <p>
+ * The interval doubles (up to the maximum) while the player stands still and scans find nothing, halves when a scan
+ * finds something, and drops straight back to the minimum when new chunks load. Scans that cost more than the
+ * per-tick budget stretch the interval so their average cost per tick stays within it. Client thread only.
+ */
+public final class AdaptiveScheduler {
+    // moving less than this since the last scan counts as standing still
+    private static final double IDLE_DISTANCE_SQ = 2.0 * 2.0;
+
+    private int interval = 1;
+    private int ticksSinceScan;
+    private int chunksLoaded;
+    private double lastX, lastY, lastZ;
+    private boolean hasPosition;
+    private long lastScanNanos;
+
+    public void reset(int minTicks) {
+        interval = Math.max(1, minTicks);
+        ticksSinceScan = 0;
+        chunksLoaded = 0;
+        hasPosition = false;
+        lastScanNanos = 0;
+    }
+
+    /** A chunk came in from the server; the next scan is brought forward. */
+    public void onChunkLoaded() {
+        chunksLoaded++;
+    }
+
+    /**
+     * Advances one tick. Returns true when a scan should run now.
+     */
+    public boolean tick(int minTicks, int maxTicks) {
+        int min = Math.max(1, minTicks);
+        int max = Math.max(min, maxTicks);
+
+        // new terrain is where new maps and signs are
+        if (chunksLoaded > 0) interval = min;
+        interval = Math.max(min, Math.min(max, interval));
+
+        return ++ticksSinceScan >= interval;
+    }
+
+    /**
+     * Records a finished scan. {@code found} is the number of new or changed items it produced and
+     * {@code elapsedNanos} what it cost on the client thread (measured with {@link System#nanoTime()}).
+     */
+    public void scanned(double x, double y, double z, int found, long elapsedNanos,
+                        long budgetNanos, int minTicks, int maxTicks) {
+        int min = Math.max(1, minTicks);
+        int max = Math.max(min, maxTicks);
+
+        double dx = x - lastX, dy = y - lastY, dz = z - lastZ;
+        boolean moved = !hasPosition || dx * dx + dy * dy + dz * dz > IDLE_DISTANCE_SQ;
+
+        if (found > 0 || chunksLoaded > 0) {
+            interval = Math.max(min, interval / 2);
+        } else if (!moved) {
+            interval = Math.min(max, interval * 2);
+        }
+
+        // keep the average cost per tick within the budget
+        if (budgetNanos > 0 && elapsedNanos > budgetNanos) {
+            long needed = (elapsedNanos + budgetNanos - 1) / budgetNanos;
+            interval = (int) Math.min(max, Math.max(interval, needed));
+        }
+
+        lastX = x;
+        lastY = y;
+        lastZ = z;
+        hasPosition = true;
+        ticksSinceScan = 0;
+        chunksLoaded = 0;
+        lastScanNanos = elapsedNanos;
+    }
+
+    public int interval() {
+        return interval;
+    }
+
+    public long lastScanNanos() {
+        return lastScanNanos;
+    }
+}
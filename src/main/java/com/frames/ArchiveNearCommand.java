@@ -0,0 +1,108 @@
+package com.frames;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import meteordevelopment.meteorclient.commands.Command;
+import meteordevelopment.meteorclient.systems.modules.Modules;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.command.CommandSource;
+
+import java.util.List;
+
+/**
+ * {@code .archive-near [radius]}: the archived maps and signs nearest to the player in this world, nearest first.
+ * Both lookups go through the R*Tree on the pipeline's query thread; results are printed when they complete.
+ */
+public class ArchiveNearCommand extends Command {
+    private static final int DEFAULT_RADIUS = 64;
+    private static final int LIMIT = 8;
+    private static final int MAX_TEXT = 60;
+
+    public ArchiveNearCommand() {
+        super("archive-near", "Lists archived maps and signs near you, nearest first.");
+    }
+
+    @Override
+    public void build(LiteralArgumentBuilder<CommandSource> builder) {
+        builder.executes(context -> {
+            near(DEFAULT_RADIUS);
+            return SINGLE_SUCCESS;
+        });
+
+        builder.then(argument("radius", IntegerArgumentType.integer(1, 4096)).executes(context -> {
+            near(IntegerArgumentType.getInteger(context, "radius"));
+            return SINGLE_SUCCESS;
+        }));
+    }
+
+    private void near(int radius) {
+        MinecraftClient mc = MinecraftClient.getInstance();
+        if (mc.world == null || mc.player == null) {
+            error("Not in a world.");
+            return;
+        }
+
+        String dimension = mc.world.getRegistryKey().getValue().toString();
+        String server = mc.getCurrentServerEntry() != null ? mc.getCurrentServerEntry().address : "singleplayer";
+        int x = mc.player.getBlockX();
+        int z = mc.player.getBlockZ();
+
+        ScanDb maps = Modules.get().get(MapRgbScanner.class).archive();
+        if (maps == null) {
+            info("Map archive is not open (enable map-scanner).");
+        } else {
+            ScanPipeline.shared().query(() -> {
+                try {
+                    List<ScanDb.MapLocation> found = maps.mapsInRadius(dimension, x, z, radius, LIMIT);
+                    mc.execute(() -> printMaps(found, radius));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    mc.execute(() -> error(escape("Map lookup failed: " + e.getMessage())));
+                }
+            });
+        }
+
+        // the sign archive opens with sign-scanner; queued behind its open on the same thread
+        ScanPipeline.shared().query(() -> {
+            try {
+                List<SignArchiveDb.SignHit> found = SignArchiveDb.signsInRadius(server, dimension, x, z, radius, LIMIT);
+                mc.execute(() -> printSigns(found, radius));
+            } catch (Exception e) {
+                mc.execute(() -> info(escape("Sign archive unavailable: " + e.getMessage())));
+            }
+        });
+    }
+
+    private void printMaps(List<ScanDb.MapLocation> found, int radius) {
+        if (found.isEmpty()) {
+            info("No archived maps within " + radius + " blocks.");
+            return;
+        }
+
+        info("Archived maps within " + radius + " blocks:");
+        for (ScanDb.MapLocation m : found) {
+            info(m.mapId + " at (" + m.x + ", " + m.y + ", " + m.z + ")");
+        }
+    }
+
+    private void printSigns(List<SignArchiveDb.SignHit> found, int radius) {
+        if (found.isEmpty()) {
+            info("No archived signs within " + radius + " blocks.");
+            return;
+        }
+
+        info("Archived signs within " + radius + " blocks:");
+        for (SignArchiveDb.SignHit hit : found) {
+            String text = hit.back.isBlank() ? hit.front : hit.front + " | " + hit.back;
+            text = text.replace('\n', ' ').trim();
+            if (text.length() > MAX_TEXT) text = text.substring(0, MAX_TEXT - 3) + "...";
+
+            info(escape("(" + hit.x + ", " + hit.y + ", " + hit.z + ") " + text));
+        }
+    }
+
+    // chat messages are format strings; archived text may contain '%'
+    private static String escape(String s) {
+        return s.replace("%", "%%");
+    }
+}
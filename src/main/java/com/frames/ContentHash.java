@@ -0,0 +1,86 @@
+package com.frames;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Fast non-cryptographic 64-bit hash (xxHash64-style mixing) used for change detection and dedupe keys.
+ */
+public final class ContentHash {
+    private static final VarHandle LONG_LE =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private ContentHash() {}
+
+    public static long hash64(byte[] data) {
+        return hash64(data, 0, data.length);
+    }
+
+    public static long hash64(byte[] data, int off, int len) {
+        long h = P5 + len;
+        int i = off;
+        int end = off + len;
+
+        for (; i + 8 <= end; i += 8) {
+            long k = (long) LONG_LE.get(data, i);
+            k *= P2;
+            k = Long.rotateLeft(k, 31);
+            k *= P1;
+            h ^= k;
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        for (; i < end; i++) {
+            h ^= (data[i] & 0xFFL) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+        return avalanche(h);
+    }
+
+    public static long hash64(CharSequence s) {
+        if (s == null) return 0L;
+
+        int len = s.length();
+        long h = P5 + len;
+        int i = 0;
+
+        for (; i + 4 <= len; i += 4) {
+            long k = s.charAt(i)
+                | (long) s.charAt(i + 1) << 16
+                | (long) s.charAt(i + 2) << 32
+                | (long) s.charAt(i + 3) << 48;
+            k *= P2;
+            k = Long.rotateLeft(k, 31);
+            k *= P1;
+            h ^= k;
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        for (; i < len; i++) {
+            h ^= s.charAt(i) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * Order-dependent combination of two hashes (or a hash and a packed value such as {@code BlockPos.asLong()}).
+     */
+    public static long combine(long a, long b) {
+        return avalanche(a * P1 + Long.rotateLeft(b, 29) + P3);
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
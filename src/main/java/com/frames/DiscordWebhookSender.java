@@ -1,57 +1,128 @@
 package com.frames;
 
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class DiscordWebhookSender {
-    public static void sendPng(String webhookUrl, byte[] pngBytes,
-                               String fileName, String messageContent) throws Exception {
-        if (webhookUrl == null || webhookUrl.isEmpty()) return;
-
-        String boundary = "----MapRgbScannerBoundary" + System.currentTimeMillis();
-
-        URL url = new URL(webhookUrl);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setDoOutput(true);
-        conn.setRequestProperty(
-            "Content-Type",
-            "multipart/form-data; boundary=" + boundary
-        );
-
-        try (OutputStream os = conn.getOutputStream();
-             PrintWriter writer = new PrintWriter(
-                 new OutputStreamWriter(os, StandardCharsets.UTF_8), true)) {
-
-            // JSON payload
-            writer.append("--").append(boundary).append("\r\n");
-            writer.append("Content-Disposition: form-data; name=\"payload_json\"\r\n");
-            writer.append("Content-Type: application/json; charset=UTF-8\r\n\r\n");
-            String json = "{\"content\":\"" + escape(messageContent)
-                + "\",\"username\":\"MapRgbScanner\"}";
-            writer.append(json).append("\r\n");
-            writer.flush();
-
-            // File part
-            writer.append("--").append(boundary).append("\r\n");
-            writer.append("Content-Disposition: form-data; name=\"file\"; filename=\"")
-                .append(fileName).append("\"\r\n");
-            writer.append("Content-Type: image/png\r\n\r\n");
-            writer.flush();
-
-            os.write(pngBytes);
-            os.flush();
-
-            writer.append("\r\n--").append(boundary).append("--\r\n");
-            writer.flush();
+    // One client for the whole addon: keeps TLS connections alive and multiplexes over HTTP/2 where available
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    // Discord limits for a single webhook message
+    public static final int MAX_FILES = 10;
+    public static final int MAX_EMBEDS = 10;
+    public static final int MAX_CONTENT_CHARS = 2000;
+    public static final int MAX_EMBED_DESCRIPTION_CHARS = 4096;
+    public static final int MAX_EMBED_TOTAL_CHARS = 6000;
+    // well under the smallest upload limit a webhook can have
+    public static final int MAX_UPLOAD_BYTES = 8 * 1024 * 1024;
+
+    /** One file of a multi-attachment upload; {@code caption} becomes a line of the message content. */
+    public static final class Attachment {
+        final String fileName;
+        final byte[] bytes;
+        final String caption;
+
+        public Attachment(String fileName, byte[] bytes, String caption) {
+            this.fileName = fileName;
+            this.bytes = bytes;
+            this.caption = caption;
         }
+    }
+
+    /**
+     * Splits attachments into messages of at most {@link #MAX_FILES} files whose combined captions fit
+     * {@link #MAX_CONTENT_CHARS} and whose files fit {@link #MAX_UPLOAD_BYTES}. Order is preserved.
+     */
+    public static List<List<Attachment>> batchAttachments(List<Attachment> attachments) {
+        List<List<Attachment>> batches = new ArrayList<>();
+        List<Attachment> current = new ArrayList<>();
+        int chars = 0;
+        long bytes = 0;
+
+        for (Attachment a : attachments) {
+            int lineChars = captionLine(a).length() + 1;
+            boolean full = current.size() >= MAX_FILES
+                || chars + lineChars > MAX_CONTENT_CHARS
+                || bytes + a.bytes.length > MAX_UPLOAD_BYTES;
+
+            if (full && !current.isEmpty()) {
+                batches.add(current);
+                current = new ArrayList<>();
+                chars = 0;
+                bytes = 0;
+            }
+
+            current.add(a);
+            chars += lineChars;
+            bytes += a.bytes.length;
+        }
+        if (!current.isEmpty()) batches.add(current);
+        return batches;
+    }
+
+    /**
+     * Posts up to {@link #MAX_FILES} PNGs in one multipart request ({@code files[n]} parts) with their captions
+     * joined into the message content. Use {@link #batchAttachments} to split larger lists.
+     */
+    public static CompletableFuture<HttpResponse<String>> sendPngsAsync(String webhookUrl, List<Attachment> attachments) {
+        if (webhookUrl == null || webhookUrl.isEmpty()) return CompletableFuture.completedFuture(null);
+        if (attachments.size() > MAX_FILES) throw new IllegalArgumentException("too many attachments: " + attachments.size());
+
+        StringBuilder content = new StringBuilder();
+        int size = 512;
+        for (Attachment a : attachments) {
+            if (content.length() > 0) content.append('\n');
+            content.append(captionLine(a));
+            size += a.bytes.length + 256;
+        }
+
+        String boundary = "----MapRgbScannerBoundary" + System.nanoTime();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(size);
+
+        write(body, "--" + boundary + "\r\n");
+        write(body, "Content-Disposition: form-data; name=\"payload_json\"\r\n");
+        write(body, "Content-Type: application/json; charset=UTF-8\r\n\r\n");
+        write(body, "{\"content\":" + toJsonString(truncate(content.toString(), MAX_CONTENT_CHARS)) + ",\"username\":\"MapRgbScanner\"}");
+        write(body, "\r\n");
+
+        for (int i = 0; i < attachments.size(); i++) {
+            Attachment a = attachments.get(i);
+            write(body, "--" + boundary + "\r\n");
+            write(body, "Content-Disposition: form-data; name=\"files[" + i + "]\"; filename=\"" + escape(a.fileName) + "\"\r\n");
+            write(body, "Content-Type: image/png\r\n\r\n");
+            body.writeBytes(a.bytes);
+            write(body, "\r\n");
+        }
+        write(body, "--" + boundary + "--\r\n");
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(webhookUrl))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+            .build();
+
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String captionLine(Attachment a) {
+        return a.caption == null ? "" : truncate(a.caption, MAX_CONTENT_CHARS - 1);
+    }
 
-        conn.getResponseCode(); // fire the request
-        conn.disconnect();
+    private static void write(ByteArrayOutputStream out, String s) {
+        out.writeBytes(s.getBytes(StandardCharsets.UTF_8));
     }
 
     private static String escape(String s) {
@@ -59,30 +130,62 @@ public class DiscordWebhookSender {
         return s.replace("\\", "\\\\").replace("\"", "\\\"");
     }
 
+    /**
+     * Splits message texts into groups that fit one message as embeds: at most {@link #MAX_EMBEDS} embeds,
+     * each description at most {@link #MAX_EMBED_DESCRIPTION_CHARS} (longer texts are truncated) and
+     * {@link #MAX_EMBED_TOTAL_CHARS} across the message.
+     */
+    public static List<List<String>> batchEmbeds(List<String> descriptions) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int chars = 0;
+
+        for (String d : descriptions) {
+            String text = truncate(d == null ? "" : d, MAX_EMBED_DESCRIPTION_CHARS);
+            if (!current.isEmpty() && (current.size() >= MAX_EMBEDS || chars + text.length() > MAX_EMBED_TOTAL_CHARS)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                chars = 0;
+            }
+            current.add(text);
+            chars += text.length();
+        }
+        if (!current.isEmpty()) batches.add(current);
+        return batches;
+    }
 
-    public static void sendMessage(String webhookUrl, String content) throws Exception {
-        if (webhookUrl == null || webhookUrl.isEmpty()) return;
-
-        URL url = new URL(webhookUrl);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setDoOutput(true);
-        conn.setRequestProperty("Content-Type", "application/json");
+    /**
+     * Posts one message with an embed per description. Use {@link #batchEmbeds} to stay within Discord's limits.
+     */
+    public static CompletableFuture<HttpResponse<String>> sendEmbedsAsync(String webhookUrl, List<String> descriptions) {
+        if (webhookUrl == null || webhookUrl.isEmpty()) return CompletableFuture.completedFuture(null);
+        if (descriptions.size() > MAX_EMBEDS) throw new IllegalArgumentException("too many embeds: " + descriptions.size());
+
+        StringBuilder json = new StringBuilder("{\"embeds\":[");
+        for (int i = 0; i < descriptions.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"description\":")
+                .append(toJsonString(truncate(descriptions.get(i), MAX_EMBED_DESCRIPTION_CHARS)))
+                .append('}');
+        }
+        json.append("]}");
 
-        // Minimal Discord webhook JSON
-        String json = "{\"content\":" + toJsonString(content) + "}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(webhookUrl))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json.toString(), StandardCharsets.UTF_8))
+            .build();
 
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-        conn.setFixedLengthStreamingMode(bytes.length);
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(bytes);
-        }
+    private static String truncate(String s, int max) {
+        if (s == null || s.length() <= max) return s;
+        return s.substring(0, max - 1) + "\u2026";
+    }
 
-        int code = conn.getResponseCode();
-        if (code < 200 || code >= 300) {
-            throw new RuntimeException("Discord webhook returned HTTP " + code);
-        }
+    public static boolean isSuccess(HttpResponse<?> response) {
+        return response != null && response.statusCode() >= 200 && response.statusCode() < 300;
     }
 
     // helper (put inside DiscordWebhookSender too)
@@ -0,0 +1,159 @@
+package com.frames;
+
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.MapIdComponent;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.decoration.ItemFrameEntity;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-chunk index of loaded item frames that hold a filled map.
+ * <p>
+ * Kept up to date from entity add/remove events and frame metadata updates; every change marks the frame's chunk
+ * dirty, and scans only visit dirty chunks. Client thread only.
+ */
+public final class FrameIndex {
+    private final Map<Long, Set<Integer>> framesByChunk = new HashMap<>();
+    private final Map<Integer, Long> chunkByFrame = new HashMap<>();
+    private final Map<Integer, Integer> frameByMapId = new HashMap<>();
+    private final Map<Integer, Integer> mapIdByFrame = new HashMap<>();
+    private final Set<Long> dirtyChunks = new LinkedHashSet<>();
+    private ClientWorld world;
+
+    /** Whether the index was built for {@code world} (false after {@link #clear()} or a world change). */
+    public boolean isFor(ClientWorld world) {
+        return this.world != null && this.world == world;
+    }
+
+    /**
+     * Indexes every loaded frame of {@code world} once; all of their chunks start dirty.
+     */
+    public void rebuild(ClientWorld world) {
+        clear();
+        this.world = world;
+        for (Entity e : world.getEntities()) {
+            if (e instanceof ItemFrameEntity frame) update(frame);
+        }
+    }
+
+    public void clear() {
+        framesByChunk.clear();
+        chunkByFrame.clear();
+        frameByMapId.clear();
+        mapIdByFrame.clear();
+        dirtyChunks.clear();
+        world = null;
+    }
+
+    /**
+     * Re-reads the frame's held item: frames holding a filled map are (re)indexed and their chunk marked dirty,
+     * anything else is dropped from the index.
+     */
+    public void update(ItemFrameEntity frame) {
+        int entityId = frame.getId();
+        MapIdComponent idComp = frame.getHeldItemStack().getComponents().get(DataComponentTypes.MAP_ID);
+        if (idComp == null) {
+            remove(entityId);
+            return;
+        }
+
+        long chunk = ChunkPos.toLong(frame.getBlockPos().getX() >> 4, frame.getBlockPos().getZ() >> 4);
+        Long previous = chunkByFrame.put(entityId, chunk);
+        if (previous != null && previous != chunk) removeFromChunk(previous, entityId);
+        framesByChunk.computeIfAbsent(chunk, k -> new HashSet<>()).add(entityId);
+
+        Integer previousMap = mapIdByFrame.put(entityId, idComp.id());
+        if (previousMap != null && previousMap != idComp.id()) frameByMapId.remove(previousMap, entityId);
+        frameByMapId.put(idComp.id(), entityId);
+
+        dirtyChunks.add(chunk);
+    }
+
+    public void remove(int entityId) {
+        Long chunk = chunkByFrame.remove(entityId);
+        if (chunk != null) removeFromChunk(chunk, entityId);
+
+        Integer mapId = mapIdByFrame.remove(entityId);
+        if (mapId != null) frameByMapId.remove(mapId, entityId);
+    }
+
+    /** Marks the chunk of the frame showing {@code mapId} dirty, e.g. after its colours changed. */
+    public void markMapDirty(int mapId) {
+        Integer entityId = frameByMapId.get(mapId);
+        if (entityId == null) return;
+
+        Long chunk = chunkByFrame.get(entityId);
+        if (chunk != null) dirtyChunks.add(chunk);
+    }
+
+    /** Entity id of the loaded frame showing {@code mapId}, or null. */
+    public Integer frameForMap(int mapId) {
+        return frameByMapId.get(mapId);
+    }
+
+    public int frameCount() {
+        return chunkByFrame.size();
+    }
+
+    public int dirtyChunkCount() {
+        return dirtyChunks.size();
+    }
+
+    /** What {@link #forEachDirtyFrame} does after a frame was visited. */
+    public enum Visit {
+        /** Frame handled; the chunk is cleaned once all its frames are. */
+        DONE,
+        /** Frame not handled yet (e.g. out of range); its chunk stays dirty, the walk goes on. */
+        DEFER,
+        /** Stop the walk; the current chunk stays dirty. */
+        STOP
+    }
+
+    public interface FrameVisitor {
+        Visit visit(int entityId);
+    }
+
+    /**
+     * Visits the frames of dirty chunks within {@code chunkRadius} of {@code center} and marks those chunks clean
+     * unless a frame in them was deferred. Dirty chunks out of range are kept for later.
+     */
+    public void forEachDirtyFrame(ChunkPos center, int chunkRadius, FrameVisitor visitor) {
+        Iterator<Long> it = dirtyChunks.iterator();
+        while (it.hasNext()) {
+            long chunk = it.next();
+            int cx = ChunkPos.getPackedX(chunk);
+            int cz = ChunkPos.getPackedZ(chunk);
+            if (Math.abs(cx - center.x) > chunkRadius || Math.abs(cz - center.z) > chunkRadius) continue;
+
+            boolean handled = true;
+            Set<Integer> frames = framesByChunk.get(chunk);
+            if (frames != null) {
+                for (int entityId : frames) {
+                    Visit visit = visitor.visit(entityId);
+                    if (visit == Visit.STOP) return;
+                    if (visit == Visit.DEFER) handled = false;
+                }
+            }
+            if (handled) it.remove();
+        }
+    }
+
+    private void removeFromChunk(long chunk, int entityId) {
+        Set<Integer> frames = framesByChunk.get(chunk);
+        if (frames == null) return;
+
+        frames.remove(entityId);
+        if (frames.isEmpty()) {
+            framesByChunk.remove(chunk);
+            dirtyChunks.remove(chunk);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.frames;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the {@link MapProcessor.MapJob} and {@link SignProcessor.SignJob} batches handed to the processors, so a
+ * session can be replayed without Minecraft (see {@code ReplayDriver} in the replay source set).
+ * <p>
+ * A capture is a gzip stream: a header ({@link #MAGIC}, {@link #VERSION}) followed by one record per submitted batch,
+ * each starting with a tag byte and the wall-clock time it was submitted. Writes happen on the capture's own thread.
+ * A capture cut short by a crash reads back up to the last complete record.
+ */
+public final class JobCapture implements AutoCloseable {
+    public static final int MAGIC = 0x4D534350; // "MSCP"
+    public static final int VERSION = 1;
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final byte MAPS = 1;
+    private static final byte SIGNS = 2;
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final ExecutorService writer;
+    private int records;
+
+    private JobCapture(Path file, DataOutputStream out) {
+        this.file = file;
+        this.out = out;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MapScanner-Capture");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static JobCapture open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        // sync flush: every flushed record is readable even if the game dies before close()
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024, true)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        return new JobCapture(file, out);
+    }
+
+    /**
+     * Opens {@code <folder>/captures/<kind>-<time>.mscap}.
+     */
+    public static JobCapture openNew(Path folder, String kind) throws IOException {
+        return open(folder.resolve("captures").resolve(kind + "-" + LocalDateTime.now().format(FILE_TIME) + ".mscap"));
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /** Appends a map batch; the jobs must not be modified afterwards. */
+    public void maps(List<MapProcessor.MapJob> jobs, String dimension) {
+        long now = System.currentTimeMillis();
+        List<MapProcessor.MapJob> batch = List.copyOf(jobs);
+        write(() -> {
+            out.writeByte(MAPS);
+            out.writeLong(now);
+            writeNullable(dimension);
+            out.writeInt(batch.size());
+            for (MapProcessor.MapJob job : batch) {
+                out.writeUTF(job.mapId);
+                out.writeLong(job.contentHash);
+                out.writeLong(job.pos.asLong());
+                out.writeByte(job.facing.getId());
+                out.writeByte(job.rotation);
+                out.writeInt(job.colors.length);
+                out.write(job.colors);
+            }
+        });
+    }
+
+    /** Appends a sign batch. */
+    public void signs(List<SignProcessor.SignJob> jobs) {
+        long now = System.currentTimeMillis();
+        List<SignProcessor.SignJob> batch = List.copyOf(jobs);
+        write(() -> {
+            out.writeByte(SIGNS);
+            out.writeLong(now);
+            out.writeInt(batch.size());
+            for (SignProcessor.SignJob job : batch) {
+                out.writeLong(job.firstSeenMs);
+                out.writeLong(job.pos.asLong());
+                out.writeUTF(job.front);
+                out.writeUTF(job.back);
+                writeNullable(job.dimension);
+                writeNullable(job.server);
+                out.writeUTF(job.discordMessage);
+            }
+        });
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    private void write(Write w) {
+        try {
+            writer.execute(() -> {
+                try {
+                    w.run();
+                    out.flush();
+                    records++;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // batch submitted while the capture was closing
+        }
+    }
+
+    private void writeNullable(String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    /**
+     * Writes what is queued and closes the file.
+     */
+    @Override
+    public void close() {
+        writer.execute(() -> {
+            try {
+                out.close();
+                System.out.println("[MapScanner] Capture " + file.getFileName() + " closed (" + records + " batch(es)).");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---- reading --------------------------------------------------------------------------------------------------
+
+    public interface Handler {
+        void maps(long atMs, String dimension, List<MapProcessor.MapJob> jobs) throws Exception;
+
+        void signs(long atMs, List<SignProcessor.SignJob> jobs) throws Exception;
+    }
+
+    /**
+     * Reads {@code file} in order, calling {@code handler} once per recorded batch. Returns the number of batches.
+     */
+    public static int read(Path file, Handler handler) throws Exception {
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(raw, 64 * 1024)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a map-scanner capture: " + file);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported capture version " + version + ": " + file);
+
+            int batches = 0;
+            while (true) {
+                int tag;
+                try {
+                    tag = in.read();
+                    if (tag < 0) break;
+
+                    if (tag == MAPS) {
+                        long at = in.readLong();
+                        String dimension = readNullable(in);
+                        handler.maps(at, dimension, readMaps(in));
+                    } else if (tag == SIGNS) {
+                        long at = in.readLong();
+                        handler.signs(at, readSigns(in));
+                    } else {
+                        throw new IOException("Corrupt capture (record tag " + tag + "): " + file);
+                    }
+                } catch (EOFException e) {
+                    // written until the game stopped; the last record is incomplete
+                    System.out.println("[MapScanner] Capture " + file.getFileName() + " ends mid-record; stopping there.");
+                    break;
+                }
+                batches++;
+            }
+            return batches;
+        }
+    }
+
+    private static List<MapProcessor.MapJob> readMaps(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<MapProcessor.MapJob> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String mapId = in.readUTF();
+            long hash = in.readLong();
+            BlockPos pos = BlockPos.fromLong(in.readLong());
+            Direction facing = Direction.byId(in.readByte());
+            int rotation = in.readByte();
+            byte[] colors = new byte[in.readInt()];
+            in.readFully(colors);
+            jobs.add(new MapProcessor.MapJob(colors, hash, mapId, pos, facing, rotation));
+        }
+        return jobs;
+    }
+
+    private static List<SignProcessor.SignJob> readSigns(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<SignProcessor.SignJob> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long firstSeen = in.readLong();
+            BlockPos pos = BlockPos.fromLong(in.readLong());
+            String front = in.readUTF();
+            String back = in.readUTF();
+            String dimension = readNullable(in);
+            String server = readNullable(in);
+            String message = in.readUTF();
+            jobs.add(new SignProcessor.SignJob(firstSeen, pos, front, back, dimension, server, message));
+        }
+        return jobs;
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
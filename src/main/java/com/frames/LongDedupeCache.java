@@ -0,0 +1,174 @@
+package com.frames;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity {@code long -> long} map with CLOCK (second-chance) eviction, used as the scanners' dedupe memory.
+ * Entries live in flat primitive arrays, so the footprint is fixed by the capacity no matter how long a session runs.
+ * Not thread-safe; callers confine it to one thread.
+ */
+public final class LongDedupeCache {
+    private final int capacity;
+    private final long[] keys;
+    private final long[] values;
+    private final boolean[] referenced;
+
+    // open-addressed index: slot + 1, 0 = empty
+    private final int[] table;
+    private final int mask;
+
+    private int size;
+    private int hand;
+
+    public LongDedupeCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.referenced = new boolean[capacity];
+
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        int slot = find(key);
+        if (slot < 0) return false;
+        referenced[slot] = true;
+        return true;
+    }
+
+    public long get(long key, long defaultValue) {
+        int slot = find(key);
+        if (slot < 0) return defaultValue;
+        referenced[slot] = true;
+        return values[slot];
+    }
+
+    /**
+     * Adds {@code key} as a set member. Returns true if it was not present.
+     */
+    public boolean add(long key) {
+        return putIfChanged(key, 0L);
+    }
+
+    /**
+     * Stores {@code value} under {@code key}. Returns true if the key was absent or held a different value.
+     */
+    public boolean putIfChanged(long key, long value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            referenced[slot] = true;
+            if (values[slot] == value) return false;
+            values[slot] = value;
+            return true;
+        }
+        insert(key, value);
+        return true;
+    }
+
+    public void put(long key, long value) {
+        putIfChanged(key, value);
+    }
+
+    public boolean remove(long key) {
+        int pos = findPos(key);
+        if (pos < 0) return false;
+
+        int slot = table[pos] - 1;
+        unlink(pos);
+
+        // keep slots dense: move the last entry into the hole
+        int last = size - 1;
+        if (slot != last) {
+            int lastPos = findPos(keys[last]);
+            keys[slot] = keys[last];
+            values[slot] = values[last];
+            referenced[slot] = referenced[last];
+            table[lastPos] = slot + 1;
+        }
+        size--;
+        if (hand >= size) hand = 0;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(referenced, false);
+        size = 0;
+        hand = 0;
+    }
+
+    private void insert(long key, long value) {
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        } else {
+            // CLOCK: clear reference bits until an unreferenced victim comes around
+            while (referenced[hand]) {
+                referenced[hand] = false;
+                hand = (hand + 1) % capacity;
+            }
+            slot = hand;
+            hand = (hand + 1) % capacity;
+            unlink(findPos(keys[slot]));
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        referenced[slot] = false;
+
+        int pos = home(key);
+        while (table[pos] != 0) pos = (pos + 1) & mask;
+        table[pos] = slot + 1;
+    }
+
+    private int find(long key) {
+        int pos = findPos(key);
+        return pos < 0 ? -1 : table[pos] - 1;
+    }
+
+    private int findPos(long key) {
+        int pos = home(key);
+        int e;
+        while ((e = table[pos]) != 0) {
+            if (keys[e - 1] == key) return pos;
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Backward-shift deletion so linear probing never needs tombstones. */
+    private void unlink(int pos) {
+        int hole = pos;
+        int j = pos;
+        table[hole] = 0;
+        while (true) {
+            j = (j + 1) & mask;
+            int e = table[j];
+            if (e == 0) return;
+
+            int h = home(keys[e - 1]);
+            boolean stays = (hole <= j) ? (hole < h && h <= j) : (hole < h || h <= j);
+            if (stays) continue;
+
+            table[hole] = e;
+            table[j] = 0;
+            hole = j;
+        }
+    }
+
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -1,15 +1,24 @@
 package com.frames;
 
 import meteordevelopment.meteorclient.addons.MeteorAddon;
+import meteordevelopment.meteorclient.commands.Commands;
+import meteordevelopment.meteorclient.systems.hud.Hud;
+import meteordevelopment.meteorclient.systems.hud.HudGroup;
 import meteordevelopment.meteorclient.systems.modules.Modules;
 
 public class MapFrameAddon extends MeteorAddon {
+    public static final HudGroup HUD_GROUP = new HudGroup("MapFrame");
+
     @Override
     public void onInitialize() {
         System.out.println("Initializing MapFrame Addon");
         //Modules.get().add(new MapFrameFarmer());
         Modules.get().add(new MapRgbScanner());
         Modules.get().add(new SignScanner());
+        Hud.get().register(ScanMetricsHud.INFO);
+        Commands.add(new ScanStatsCommand());
+        Commands.add(new SignSearchCommand());
+        Commands.add(new ArchiveNearCommand());
 
     }
 
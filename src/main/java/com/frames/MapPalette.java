@@ -0,0 +1,58 @@
+package com.frames;
+
+import net.minecraft.block.MapColor;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Lookup table from map colour bytes to packed 0xRRGGBB render colours.
+ */
+public final class MapPalette {
+    /** Drawn for colour index 0 (transparent / unexplored map pixels). */
+    public static final int BACKGROUND = 0x202020;
+
+    private static volatile int[] renderColors;
+
+    private MapPalette() {}
+
+    /**
+     * The shared 256-entry table built from {@link MapColor#getRenderColor(int)} on first use.
+     * Callers must not modify the returned array.
+     */
+    public static int[] renderColors() {
+        int[] lut = renderColors;
+        if (lut == null) {
+            lut = build(MapColor::getRenderColor);
+            renderColors = lut;
+        }
+        return lut;
+    }
+
+    /**
+     * Replaces the shared table; for running the pipeline headless, where {@link MapColor} is not available.
+     */
+    static void install(int[] lut) {
+        renderColors = lut.clone();
+    }
+
+    /**
+     * Builds a table from an arbitrary colour function (lets benchmarks run without Minecraft).
+     */
+    public static int[] build(IntUnaryOperator renderColor) {
+        int[] lut = new int[256];
+        lut[0] = BACKGROUND;
+        for (int i = 1; i < lut.length; i++) {
+            lut[i] = renderColor.applyAsInt(i) & 0xFFFFFF;
+        }
+        return lut;
+    }
+
+    /**
+     * Converts {@code out.length} colour bytes to RGB in a single pass.
+     */
+    public static void toRgb(byte[] colors, int[] lut, int[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = lut[colors[i] & 0xFF];
+        }
+    }
+}
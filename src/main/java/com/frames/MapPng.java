@@ -0,0 +1,137 @@
+package com.frames;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes map colour bytes straight to an 8-bit palette PNG (colour type 3).
+ * Each thread keeps its own {@link Deflater} and scratch buffers, so encoding allocates only the result array.
+ */
+public final class MapPng {
+    private static final byte[] SIGNATURE = {
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+    };
+
+    private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+    private MapPng() {}
+
+    /**
+     * Encodes {@code width * height} palette indices (row-major) using {@code lut} as the PLTE chunk.
+     */
+    public static byte[] encodeIndexed(byte[] indices, int width, int height, int[] lut) {
+        if (indices == null || indices.length < width * height) {
+            throw new IllegalArgumentException("need " + (width * height) + " colour bytes");
+        }
+        return ENCODER.get().encode(indices, width, height, lut);
+    }
+
+    private static final class Encoder {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private byte[] raw = new byte[0];
+        private byte[] buf = new byte[16 * 1024];
+        private int pos;
+
+        byte[] encode(byte[] indices, int width, int height, int[] lut) {
+            // filter byte 0 (None) in front of every scanline
+            int rawLen = height * (width + 1);
+            if (raw.length < rawLen) raw = new byte[rawLen];
+
+            int maxIndex = 0;
+            for (int y = 0, src = 0, dst = 0; y < height; y++) {
+                raw[dst++] = 0;
+                for (int x = 0; x < width; x++) {
+                    byte b = indices[src++];
+                    raw[dst++] = b;
+                    if ((b & 0xFF) > maxIndex) maxIndex = b & 0xFF;
+                }
+            }
+
+            pos = 0;
+            put(SIGNATURE, 0, SIGNATURE.length);
+
+            int start = beginChunk("IHDR");
+            putInt(width);
+            putInt(height);
+            putByte(8);  // bit depth
+            putByte(3);  // colour type: indexed
+            putByte(0);  // compression
+            putByte(0);  // filter
+            putByte(0);  // interlace
+            endChunk(start);
+
+            // only as many palette entries as the image references
+            start = beginChunk("PLTE");
+            for (int i = 0; i <= maxIndex; i++) {
+                int rgb = lut[i];
+                putByte(rgb >>> 16);
+                putByte(rgb >>> 8);
+                putByte(rgb);
+            }
+            endChunk(start);
+
+            start = beginChunk("IDAT");
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLen);
+            deflater.finish();
+            while (!deflater.finished()) {
+                ensure(4096);
+                pos += deflater.deflate(buf, pos, buf.length - pos);
+            }
+            endChunk(start);
+
+            endChunk(beginChunk("IEND"));
+
+            return Arrays.copyOf(buf, pos);
+        }
+
+        /** Reserves the length field, writes the type and returns the offset of the length field. */
+        private int beginChunk(String type) {
+            int start = pos;
+            putInt(0);
+            for (int i = 0; i < 4; i++) putByte(type.charAt(i));
+            return start;
+        }
+
+        private void endChunk(int start) {
+            int len = pos - start - 8;
+            writeInt(start, len);
+
+            crc.reset();
+            crc.update(buf, start + 4, len + 4);
+            putInt((int) crc.getValue());
+        }
+
+        private void put(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, pos, len);
+            pos += len;
+        }
+
+        private void putByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        private void putInt(int v) {
+            ensure(4);
+            writeInt(pos, v);
+            pos += 4;
+        }
+
+        private void writeInt(int at, int v) {
+            buf[at] = (byte) (v >>> 24);
+            buf[at + 1] = (byte) (v >>> 16);
+            buf[at + 2] = (byte) (v >>> 8);
+            buf[at + 3] = (byte) v;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+}
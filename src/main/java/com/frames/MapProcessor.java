@@ -0,0 +1,311 @@
+package com.frames;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import javax.imageio.ImageIO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Turns captured maps into archive rows and webhook uploads off the client thread.
+ * <p>
+ * Each map is encoded as its own task on the {@link ScanPipeline} encode pool; once a batch is encoded it is finished on
+ * the pipeline's finish thread: its rows go to the DB writer and its images to the outbox (or straight to the
+ * dispatcher when there is no archive).
+ */
+public final class MapProcessor {
+    public static final class MapJob {
+        final byte[] colors;
+        final long contentHash;
+        final String mapId;
+        final BlockPos pos;
+        final Direction facing;
+        final int rotation;
+
+        MapJob(byte[] colors, long contentHash, String mapId, BlockPos pos, Direction facing, int rotation) {
+            this.colors = colors;
+            this.contentHash = contentHash;
+            this.mapId = mapId;
+            this.pos = pos;
+            this.facing = facing;
+            this.rotation = rotation;
+        }
+    }
+
+    private static final ScanMetrics.Histogram ENCODE = ScanMetrics.get().timer("map.encode");
+    private static final ScanMetrics.Counter ARCHIVED = ScanMetrics.get().counter("map.archived_copies");
+
+    private final ScanPipeline pipeline = ScanPipeline.shared();
+    private final ScanDb db;
+
+    // content hashes already stored in map_blobs; shared by the encode threads
+    private final LongDedupeCache knownBlobs;
+
+    private volatile JobCapture capture;
+    private volatile Consumer<MapJob> failureListener;
+    // completes when the last submitted batch is finished; the next one chains onto it
+    private CompletableFuture<?> lastFinish = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param db archive to write to, or null to only send
+     */
+    public MapProcessor(ScanDb db, int blobCapacity) {
+        this.db = db;
+        this.knownBlobs = new LongDedupeCache(blobCapacity);
+        // a hash only counts as stored once the write-behind commit holding its blob went through
+        if (db != null) db.onBlobStored(this::addKnownBlob);
+    }
+
+    public void addKnownBlob(long contentHash) {
+        synchronized (knownBlobs) {
+            knownBlobs.add(contentHash);
+        }
+    }
+
+    /**
+     * Called on the finish thread with every job that could not be encoded or queued for the archive, so the caller
+     * can forget it was captured and pick it up again.
+     */
+    public void onFailed(Consumer<MapJob> listener) {
+        this.failureListener = listener;
+    }
+
+    /** Records every submitted batch to {@code capture} (null stops recording). */
+    public void capture(JobCapture capture) {
+        this.capture = capture;
+    }
+
+    /**
+     * Queues a batch. Returns immediately; the batch is finished on the pipeline's finish thread after every earlier
+     * batch.
+     */
+    public void submit(List<MapJob> jobs, String url, String dimension, boolean indexedPng, boolean stitchWalls) {
+        JobCapture c = capture;
+        if (c != null) c.maps(jobs, dimension);
+
+        boolean sendDiscord = url != null && !url.isBlank();
+        byte[][] pngs = new byte[jobs.size()][];
+        boolean[] duplicate = new boolean[jobs.size()];
+
+        CompletableFuture<?>[] encodes = new CompletableFuture<?>[jobs.size()];
+        for (int i = 0; i < jobs.size(); i++) {
+            int index = i;
+            encodes[i] = pipeline.run(() -> encode(jobs.get(index), indexedPng, sendDiscord, index, pngs, duplicate));
+        }
+
+        CompletableFuture<Void> encoded = CompletableFuture.allOf(encodes);
+        synchronized (this) {
+            // batches finish in submission order on the finish thread, never on an encode thread
+            lastFinish = CompletableFuture.allOf(lastFinish, encoded)
+                .handle((ignored, error) -> null)
+                .thenCompose(ignored -> pipeline.finish(() -> {
+                    try {
+                        finish(jobs, url, dimension, indexedPng, stitchWalls, pngs, duplicate);
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                    }
+                }));
+        }
+    }
+
+    private void encode(MapJob job, boolean indexedPng, boolean sendDiscord, int index, byte[][] pngs, boolean[] duplicate) {
+        try {
+            // identical art is stored once; further copies only reference the existing blob but are still sent
+            if (isStoredBlob(job.contentHash)) {
+                duplicate[index] = true;
+                ARCHIVED.increment();
+                if (!sendDiscord) return;
+            }
+
+            long started = System.nanoTime();
+            pngs[index] = indexedPng
+                ? MapPng.encodeIndexed(job.colors, 128, 128, MapPalette.renderColors())
+                : imageToPng(mapToImage(job.colors));
+            ENCODE.recordSince(started);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void finish(List<MapJob> jobs, String url, String dimension, boolean indexedPng, boolean stitchWalls,
+                        byte[][] pngs, boolean[] duplicate) {
+        int stored = 0;
+        int duplicates = 0;
+        boolean sendDiscord = url != null && !url.isBlank();
+
+        List<MapJob> failed = new ArrayList<>();
+        List<MapJob> rowJobs = new ArrayList<>(jobs.size());
+        List<ScanDb.MapRow> rows = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            MapJob job = jobs.get(i);
+            if (duplicate[i]) {
+                duplicates++;
+            } else if (pngs[i] == null) {
+                failed.add(job);
+                continue;
+            }
+
+            rowJobs.add(job);
+            rows.add(new ScanDb.MapRow(
+                job.mapId,
+                dimension,
+                job.pos.getX(), job.pos.getY(), job.pos.getZ(),
+                duplicate[i] ? null : pngs[i],
+                duplicate[i] ? null : job.colors,
+                job.contentHash
+            ));
+        }
+
+        // persistence runs on the shared write-behind thread so a slow webhook never stalls DB writes
+        if (db != null) {
+            int i = 0;
+            try {
+                for (; i < rows.size(); i++) {
+                    if (db.enqueueMap(rows.get(i))) {
+                        stored++;
+                    } else {
+                        failed.add(rowJobs.get(i));
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failed.addAll(rowJobs.subList(i, rowJobs.size()));
+            }
+        }
+
+        int queued = 0;
+        WebhookOutbox outbox = db != null ? db.outbox() : null;
+
+        if (sendDiscord) {
+            List<DiscordWebhookSender.Attachment> attachments = stitchWalls
+                ? wallAttachments(jobs, pngs, indexedPng)
+                : mapAttachments(jobs, pngs);
+
+            if (outbox != null) {
+                // delivered by the outbox drainer, which survives restarts and retries failures
+                try {
+                    for (DiscordWebhookSender.Attachment a : attachments) {
+                        if (outbox.enqueue(WebhookOutbox.Entry.file(url, a.fileName, a.bytes, a.caption))) queued++;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                attachments.clear();
+            }
+
+            // without an archive there is no outbox: up to 10 maps per message, paced by the dispatcher
+            for (List<DiscordWebhookSender.Attachment> batch : DiscordWebhookSender.batchAttachments(attachments)) {
+                WebhookDispatcher.get().sendPngs(url, batch).whenComplete((response, error) -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                    } else if (DiscordWebhookSender.isSuccess(response)) {
+                        System.out.println("[MapScanner] Sent " + batch.size() + " map(s) to Discord.");
+                    }
+                });
+            }
+        }
+
+        Consumer<MapJob> listener = failureListener;
+        if (listener != null) failed.forEach(listener);
+
+        if (stored > 0) System.out.println("[MapScanner] Queued " + stored + " map(s) for DB.");
+        if (duplicates > 0) System.out.println("[MapScanner] " + duplicates + " copy/copies of already archived art stored by reference.");
+        if (queued > 0) System.out.println("[MapScanner] Queued " + queued + " map(s) for Discord.");
+    }
+
+    private List<DiscordWebhookSender.Attachment> mapAttachments(List<MapJob> jobs, byte[][] pngs) {
+        List<DiscordWebhookSender.Attachment> attachments = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            if (pngs[i] == null) continue;
+
+            MapJob job = jobs.get(i);
+            String info = "Map " + job.mapId + " at " + job.pos.toShortString();
+            attachments.add(new DiscordWebhookSender.Attachment(job.mapId + ".png", pngs[i], info));
+        }
+        return attachments;
+    }
+
+    /**
+     * One attachment per wall: adjacent maps in the batch are stitched from their colours and encoded once. A wall is
+     * left out only when none of its maps produced a png of its own.
+     */
+    private List<DiscordWebhookSender.Attachment> wallAttachments(List<MapJob> jobs, byte[][] pngs, boolean indexedPng) {
+        List<MapWall.Tile> tiles = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            MapJob job = jobs.get(i);
+            if (job.colors == null || job.colors.length < MapWall.TILE * MapWall.TILE) continue;
+            tiles.add(new MapWall.Tile(i, job.pos, job.facing, job.rotation, job.colors));
+        }
+
+        List<DiscordWebhookSender.Attachment> attachments = new ArrayList<>();
+        for (MapWall wall : MapWall.group(tiles)) {
+            List<MapWall.Tile> members = wall.tiles();
+            if (members.stream().allMatch(t -> pngs[t.index] == null)) continue;
+
+            MapJob first = jobs.get(members.get(0).index);
+
+            if (members.size() == 1) {
+                String info = "Map " + first.mapId + " at " + first.pos.toShortString();
+                attachments.add(new DiscordWebhookSender.Attachment(first.mapId + ".png", pngs[members.get(0).index], info));
+                continue;
+            }
+
+            try {
+                int w = wall.width() * MapWall.TILE;
+                int h = wall.height() * MapWall.TILE;
+                byte[] png = indexedPng
+                    ? MapPng.encodeIndexed(wall.compose(), w, h, MapPalette.renderColors())
+                    : imageToPng(mapToImage(wall.compose(), w, h));
+
+                StringBuilder info = new StringBuilder()
+                    .append("Map wall ").append(wall.width()).append('x').append(wall.height())
+                    .append(" (").append(members.size()).append(" maps) at ").append(first.pos.toShortString())
+                    .append(':');
+                for (MapWall.Tile t : members) info.append(' ').append(jobs.get(t.index).mapId);
+
+                attachments.add(new DiscordWebhookSender.Attachment("wall_" + first.mapId + ".png", png, info.toString()));
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+        return attachments;
+    }
+
+    /**
+     * Memory only: the encode threads never touch the archive. A stored blob missing from the set (evicted, or not
+     * warmed yet) is simply written again and ignored by the writer's {@code INSERT OR IGNORE}.
+     */
+    private boolean isStoredBlob(long contentHash) {
+        if (db == null) return false;
+        synchronized (knownBlobs) {
+            return knownBlobs.containsKey(contentHash);
+        }
+    }
+
+    private BufferedImage mapToImage(byte[] colors) {
+        return mapToImage(colors, 128, 128);
+    }
+
+    private BufferedImage mapToImage(byte[] colors, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+        if (colors == null || colors.length < w * h) return img;
+
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        MapPalette.toRgb(colors, MapPalette.renderColors(), pixels);
+        return img;
+    }
+
+    private byte[] imageToPng(BufferedImage img) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "PNG", out);
+        return out.toByteArray();
+    }
+}
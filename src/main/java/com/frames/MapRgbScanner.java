@@ -2,6 +2,9 @@ package com.frames;
 
 import meteordevelopment.meteorclient.systems.modules.Module;
 import meteordevelopment.meteorclient.systems.modules.Categories;
+import meteordevelopment.meteorclient.events.entity.EntityAddedEvent;
+import meteordevelopment.meteorclient.events.entity.EntityRemovedEvent;
+import meteordevelopment.meteorclient.events.world.ChunkDataEvent;
 import meteordevelopment.meteorclient.events.world.TickEvent;
 import meteordevelopment.orbit.EventHandler;
 
@@ -10,45 +13,55 @@ import meteordevelopment.meteorclient.settings.SettingGroup;
 import meteordevelopment.meteorclient.settings.StringSetting;
 import meteordevelopment.meteorclient.settings.IntSetting;
 import meteordevelopment.meteorclient.settings.BoolSetting;
+import meteordevelopment.meteorclient.settings.DoubleSetting;
+import meteordevelopment.meteorclient.settings.EnumSetting;
 
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.Entity;
 import net.minecraft.entity.decoration.ItemFrameEntity;
 import net.minecraft.item.FilledMapItem;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.map.MapState;
-import net.minecraft.block.MapColor;
 import net.minecraft.component.DataComponentTypes;
 import net.minecraft.component.type.MapIdComponent;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Box;
-
-
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import javax.imageio.ImageIO;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class MapRgbScanner extends Module {
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "MapScanner-Worker");
-        t.setDaemon(true);
-        return t;
-    });
+    private static final ScanMetrics.Histogram SCAN_TIME = ScanMetrics.get().timer("map.scan");
+    private static final ScanMetrics.Counter FRAMES_VISITED = ScanMetrics.get().counter("map.frames_visited");
+    private static final ScanMetrics.Counter DEDUPE_HITS = ScanMetrics.get().counter("map.dedupe_hits");
+    private static final ScanMetrics.Counter DEDUPE_MISSES = ScanMetrics.get().counter("map.dedupe_misses");
 
     private final MinecraftClient mc = MinecraftClient.getInstance();
-    private final Set<String> scannedMaps = new HashSet<>();
+    // map id -> hash of the colours last captured for it
+    private LongDedupeCache mapHashes;
+
+    // Packets capture mode: filled in by ClientPlayNetworkHandlerMixin on the client thread
+    private final Set<Integer> pendingFrames = new LinkedHashSet<>();
+    private final Set<Integer> pendingMaps = new LinkedHashSet<>();
+    // maps whose frame was out of range when their update arrived; re-queued once the player moves
+    private final Set<Integer> deferredMaps = new LinkedHashSet<>();
+    private BlockPos deferredFrom;
+    // loaded map frames by chunk; Poll mode and the initial seed only visit its dirty chunks
+    private final FrameIndex frameIndex = new FrameIndex();
+    private final AdaptiveScheduler scheduler = new AdaptiveScheduler();
+    private boolean seedFromWorld = true;
+    private boolean warmingUp = false;
+    // bumped per enable; an archive opened for an earlier one is discarded
+    private int activations;
     private final SettingGroup sgGeneral = settings.getDefaultGroup();
 
     private ScanDb db;
+    private MapProcessor processor;
+    private JobCapture capture;
 
     private final Setting<String> outputFolder = sgGeneral.add(new StringSetting.Builder()
         .name("output-folder")
@@ -75,13 +88,39 @@ public class MapRgbScanner extends Module {
 
     private final Setting<Integer> scanIntervalTicks = sgGeneral.add(new IntSetting.Builder()
         .name("scan-interval-ticks")
-        .description("How often to scan (in ticks).")
+        .description("How often to scan (in ticks). With adaptive-interval this is the shortest interval.")
         .defaultValue(3)
         .min(1)
         .sliderMax(100)
         .build()
     );
 
+    private final Setting<Boolean> adaptiveInterval = sgGeneral.add(new BoolSetting.Builder()
+        .name("adaptive-interval")
+        .description("Scan less often while standing still and finding nothing, more often when new chunks load.")
+        .defaultValue(true)
+        .build()
+    );
+
+    private final Setting<Integer> maxIntervalTicks = sgGeneral.add(new IntSetting.Builder()
+        .name("max-interval-ticks")
+        .description("Longest interval adaptive-interval may back off to.")
+        .defaultValue(40)
+        .min(1)
+        .sliderMax(400)
+        .visible(adaptiveInterval::get)
+        .build()
+    );
+
+    private final Setting<Double> tickBudgetMs = sgGeneral.add(new DoubleSetting.Builder()
+        .name("tick-budget-ms")
+        .description("Client-thread time a scan may use per tick; the rest continues on later ticks.")
+        .defaultValue(0.5)
+        .min(0.05)
+        .sliderMax(5)
+        .build()
+    );
+
     private final Setting<Integer> maxMapsPerScan = sgGeneral.add(new IntSetting.Builder()
         .name("max-maps-per-scan")
         .description("")
@@ -98,6 +137,64 @@ public class MapRgbScanner extends Module {
         .build()
     );
 
+    private final Setting<Integer> dedupeCapacity = sgGeneral.add(new IntSetting.Builder()
+        .name("dedupe-capacity")
+        .description("How many map ids to remember; least recently seen ones are evicted first.")
+        .defaultValue(100_000)
+        .min(1_024)
+        .sliderMax(1_000_000)
+        .build()
+    );
+
+    private final Setting<Boolean> warmStart = sgGeneral.add(new BoolSetting.Builder()
+        .name("warm-start")
+        .description("On enable, preload known map hashes from the archive so unchanged maps are never re-sent.")
+        .defaultValue(true)
+        .build()
+    );
+
+    private final Setting<Boolean> indexedPng = sgGeneral.add(new BoolSetting.Builder()
+        .name("indexed-png")
+        .description("Encode maps as 8-bit palette PNGs (much smaller). Disable for 24-bit RGB via ImageIO.")
+        .defaultValue(true)
+        .build()
+    );
+
+    private final Setting<CaptureMode> captureMode = sgGeneral.add(new EnumSetting.Builder<CaptureMode>()
+        .name("capture-mode")
+        .description("Packets queues maps when the server sends colour data or frame updates; Poll checks frames in changed chunks every interval.")
+        .defaultValue(CaptureMode.Packets)
+        .build()
+    );
+
+    private final Setting<Boolean> stitchWalls = sgGeneral.add(new BoolSetting.Builder()
+        .name("stitch-walls")
+        .description("Send maps hanging side by side on one wall as a single combined image.")
+        .defaultValue(true)
+        .build()
+    );
+
+    private final Setting<Integer> metricsCsvSeconds = sgGeneral.add(new IntSetting.Builder()
+        .name("metrics-csv-seconds")
+        .description("Append scanner metrics (both scanners) to scan_metrics.csv in the output folder every N seconds. 0 = off. If sign-scanner also dumps, the shorter interval wins.")
+        .defaultValue(0)
+        .min(0)
+        .sliderMax(600)
+        .build()
+    );
+
+    private final Setting<Boolean> captureJobs = sgGeneral.add(new BoolSetting.Builder()
+        .name("capture-jobs")
+        .description("Record found maps to captures/ in the output folder for offline replay. Applies on enable.")
+        .defaultValue(false)
+        .build()
+    );
+
+    public enum CaptureMode {
+        Packets,
+        Poll
+    }
+
     public MapRgbScanner() {
         super(
             Categories.Render,
@@ -107,36 +204,20 @@ public class MapRgbScanner extends Module {
         );
     }
 
-    private static class MapJob {
-        final byte[] colors;
-        final String mapId;
-        final BlockPos pos;
-
-        MapJob(byte[] colors, String mapId, BlockPos pos) {
-            this.colors = colors;
-            this.mapId = mapId;
-            this.pos = pos;
-        }
-    }
-
     @Override
     public void onActivate() {
         super.onActivate();
 
-        if (rescanOnEnable.get()) scannedMaps.clear();
-
-        try {
-            Path gameDir = FabricLoader.getInstance().getGameDir();
-            String folder = outputFolder.get().trim().isEmpty() ? "mapframe_archive" : outputFolder.get().trim();
-            Path dbPath = gameDir.resolve(folder).resolve("map_archive.db");
-
-            db = new ScanDb(dbPath);
-            info("Map DB ready: " + dbPath.toAbsolutePath());
-        } catch (Exception e) {
-            e.printStackTrace();
-            warning("Failed to open Map DB. Maps will NOT be saved.");
-            db = null;
+        if (mapHashes == null || mapHashes.capacity() != dedupeCapacity.get()) {
+            mapHashes = new LongDedupeCache(dedupeCapacity.get());
+        } else if (rescanOnEnable.get()) {
+            mapHashes.clear();
         }
+        clearPending();
+        scheduler.reset(scanIntervalTicks.get());
+
+        ScanMetrics.get().scheduleCsv(this, outputDir().resolve("scan_metrics.csv"), metricsCsvSeconds.get());
+        openArchive(outputDir().resolve("map_archive.db"));
 
         if (webhookUrl.get().isBlank()) {
             warning("Webhook URL is empty. Maps will be scanned but NOT sent.");
@@ -150,57 +231,228 @@ public class MapRgbScanner extends Module {
     @Override
     public void onDeactivate() {
         super.onDeactivate();
+        clearPending();
+        ScanMetrics.get().scheduleCsv(this, null, 0);
+        if (capture != null) {
+            processor.capture(null);
+            capture.close();
+            capture = null;
+        }
         if (db != null) {
             db.close();
             db = null;
         }
     }
 
+    /**
+     * Called from the network handler mixin after a map update packet carrying colour data was applied.
+     */
+    public void onMapColorsReceived(int mapId) {
+        frameIndex.markMapDirty(mapId);
+        if (captureMode.get() == CaptureMode.Packets) pendingMaps.add(mapId);
+    }
+
+    /**
+     * Called from the network handler mixin after an entity spawned or had its tracked data updated.
+     */
+    public void onEntityUpdated(int entityId) {
+        // every mob, player and item sends these; only item frames can change what a map shows
+        if (mc.world == null || !(mc.world.getEntityById(entityId) instanceof ItemFrameEntity frame)) return;
+
+        // the held item may have changed
+        frameIndex.update(frame);
+        if (captureMode.get() == CaptureMode.Packets) pendingFrames.add(entityId);
+    }
+
     @EventHandler
-    private void onTick(TickEvent.Post event) {
-        if (mc.world == null || mc.player == null) return;
-        if (++tickCounter % scanIntervalTicks.get() != 0) return;
+    private void onChunkData(ChunkDataEvent event) {
+        scheduler.onChunkLoaded();
+    }
 
-        int r = radius.get();
-        double radiusSq = (double) r * (double) r;
+    @EventHandler
+    private void onEntityAdded(EntityAddedEvent event) {
+        if (event.entity instanceof ItemFrameEntity frame) frameIndex.update(frame);
+    }
 
-        List<MapJob> jobs = new ArrayList<>();
+    @EventHandler
+    private void onEntityRemoved(EntityRemovedEvent event) {
+        if (event.entity instanceof ItemFrameEntity) frameIndex.remove(event.entity.getId());
+    }
 
-        Box box = new Box(
-            mc.player.getX() - r, mc.player.getY() - r, mc.player.getZ() - r,
-            mc.player.getX() + r, mc.player.getY() + r, mc.player.getZ() + r
-        );
+    /**
+     * Opens the archive on the query thread, since indexing an older file can take a while, and holds scanning
+     * off until it is ready. The processor, capture and warm start are set up on the client thread afterwards.
+     */
+    private void openArchive(Path dbPath) {
+        warmingUp = true;
+        int generation = ++activations;
+
+        ScanPipeline.shared().query(() -> {
+            ScanDb opened = null;
+            try {
+                opened = new ScanDb(dbPath);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            ScanDb ready = opened;
+            mc.execute(() -> {
+                // disabled (or re-enabled) while opening: this archive is no longer wanted
+                if (!isActive() || generation != activations) {
+                    if (ready != null) ready.close();
+                    return;
+                }
 
-        List<ItemFrameEntity> frames = mc.world.getEntitiesByClass(ItemFrameEntity.class, box, f -> true);
+                db = ready;
+                if (db != null) {
+                    info("Map DB ready: " + dbPath.toAbsolutePath());
+                } else {
+                    warning("Failed to open Map DB. Maps will NOT be saved.");
+                }
+
+                processor = new MapProcessor(db, dedupeCapacity.get());
+                processor.onFailed(job -> mc.execute(() -> forgetCapture(job)));
+                if (captureJobs.get()) startCapture();
+
+                if (warmStart.get() && db != null) {
+                    startWarmStart(db);
+                } else {
+                    warmingUp = false;
+                }
+            });
+        });
+    }
 
-        for (ItemFrameEntity frame : frames) {
-            if (frame.squaredDistanceTo(mc.player) > radiusSq) continue;
+    /**
+     * A map that could not be encoded or queued for the archive loses its cached hash, so it is captured again on its
+     * next visit (Poll) or once the player moves (Packets).
+     */
+    private void forgetCapture(MapProcessor.MapJob job) {
+        int id = Integer.parseInt(job.mapId.substring("map_".length()));
+        // a newer capture of the same map already replaced it
+        if (!mapHashes.containsKey(id) || mapHashes.get(id, 0) != job.contentHash) return;
+
+        mapHashes.remove(id);
+        frameIndex.markMapDirty(id);
+        if (captureMode.get() == CaptureMode.Packets && mc.player != null) {
+            deferredMaps.add(id);
+            deferredFrom = mc.player.getBlockPos();
+        }
+    }
 
-            ItemStack stack = frame.getHeldItemStack();
-            if (!(stack.getItem() instanceof FilledMapItem)) continue;
+    /** The configured output folder under the game directory. */
+    public Path outputDir() {
+        String folder = outputFolder.get().trim().isEmpty() ? "mapframe_archive" : outputFolder.get().trim();
+        return FabricLoader.getInstance().getGameDir().resolve(folder);
+    }
 
-            MapState state = FilledMapItem.getMapState(stack, mc.world);
-            if (state == null || state.colors == null) continue;
+    /** Archive of the running scanner, or null while disabled or still opening. */
+    public ScanDb archive() {
+        return db;
+    }
+
+    private void startCapture() {
+        try {
+            capture = JobCapture.openNew(outputDir(), "maps");
+            processor.capture(capture);
+            info("Capturing maps to " + capture.file().toAbsolutePath());
+        } catch (Exception e) {
+            e.printStackTrace();
+            warning("Failed to open capture file.");
+        }
+    }
+
+    /**
+     * Loads archived map hashes on the query thread, then merges them into the cache on the client thread.
+     * Scanning is held off until the merge so already-archived maps never reach the encode path.
+     */
+    private void startWarmStart(ScanDb source) {
+        warmingUp = true;
+        int limit = mapHashes.capacity();
+        MapProcessor target = processor;
+
+        ScanPipeline.shared().query(() -> {
+            int[] ids = new int[limit];
+            long[] hashes = new long[limit];
+            int[] count = new int[1];
+
+            try {
+                source.forEachMapHash(limit, (id, hash) -> {
+                    ids[count[0]] = id;
+                    hashes[count[0]] = hash;
+                    count[0]++;
+                });
+                source.forEachBlobHash(limit, target::addKnownBlob);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            mc.execute(() -> {
+                int loaded = 0;
+                for (int i = 0; i < count[0]; i++) {
+                    // never overwrite what this session already captured
+                    if (mapHashes.containsKey(ids[i])) continue;
+                    mapHashes.put(ids[i], hashes[i]);
+                    loaded++;
+                }
+                warmingUp = false;
+                if (isActive()) info("Warm start: " + loaded + " archived map(s) marked as known.");
+            });
+        });
+    }
 
-            byte[] colors = state.colors;
-            int w = 128, h = 128;
-            if (colors.length < w * h) continue;
+    private void clearPending() {
+        pendingFrames.clear();
+        pendingMaps.clear();
+        deferredMaps.clear();
+        frameIndex.clear();
+        seedFromWorld = true;
+    }
 
+    @EventHandler
+    private void onTick(TickEvent.Post event) {
+        if (mc.world == null || mc.player == null) return;
+        if (warmingUp) return;
 
-            MapIdComponent idComp = stack.getComponents().get(DataComponentTypes.MAP_ID);
-            if (idComp == null) continue;
+        // first tick after enabling or a world change: index every loaded frame once
+        if (!frameIndex.isFor(mc.world)) frameIndex.rebuild(mc.world);
 
-            String idText = "map_" + idComp.id();
+        int r = radius.get();
+        double radiusSq = (double) r * (double) r;
 
+        List<MapProcessor.MapJob> jobs = new ArrayList<>();
 
-            if (!"unknown".equals(idText) && scannedMaps.contains(idText)) continue;
-            if (!"unknown".equals(idText)) scannedMaps.add(idText);
+        // encode stage is backed up: leave the work queued (pending maps / dirty chunks) for a later tick
+        if (!ScanPipeline.shared().acceptsWork(maxMapsPerScan.get())) return;
 
-            byte[] snapshot = Arrays.copyOf(colors, w * h);
-            BlockPos pos = frame.getBlockPos();
-            jobs.add(new MapJob(snapshot, idText, pos));
+        long start = System.nanoTime();
+        long budget = budgetNanos();
 
-            if (jobs.size() >= maxMapsPerScan.get()) break;
+        if (captureMode.get() == CaptureMode.Packets && !seedFromWorld) {
+            if (!deferredMaps.isEmpty() && !mc.player.getBlockPos().equals(deferredFrom)) {
+                pendingMaps.addAll(deferredMaps);
+                deferredMaps.clear();
+            }
+            if (pendingFrames.isEmpty() && pendingMaps.isEmpty()) return;
+            collectFromPackets(jobs, radiusSq, start + budget);
+            SCAN_TIME.recordSince(start);
+        } else {
+            int minTicks = scanIntervalTicks.get();
+            int maxTicks = adaptiveInterval.get() ? maxIntervalTicks.get() : minTicks;
+            if (!scheduler.tick(minTicks, maxTicks)) return;
+
+            pendingFrames.clear();
+            pendingMaps.clear();
+            deferredMaps.clear();
+            boolean complete = collectFromWorld(jobs, r, radiusSq, start + budget);
+            // the seed keeps going on later ticks until every dirty chunk in range was visited
+            if (complete) seedFromWorld = false;
+            SCAN_TIME.recordSince(start);
+
+            // an unfinished pass counts as a find so the rest follows soon
+            scheduler.scanned(mc.player.getX(), mc.player.getY(), mc.player.getZ(),
+                complete ? jobs.size() : Math.max(1, jobs.size()),
+                System.nanoTime() - start, budget, minTicks, maxTicks);
         }
 
         if (jobs.isEmpty()) return;
@@ -209,81 +461,113 @@ public class MapRgbScanner extends Module {
         boolean sendDiscord = !url.isEmpty();
 
         if (!sendDiscord) {
-            info("Found " + jobs.size() + " new map(s). (Not sending — webhook-url is blank.)");
+            info("Found " + jobs.size() + " new/updated map(s). (Not sending — webhook-url is blank.)");
         } else {
-            info("Found " + jobs.size() + " new map(s); sending to Discord in background.");
+            info("Found " + jobs.size() + " new/updated map(s); sending to Discord in background.");
         }
 
-        EXECUTOR.submit(() -> processJobs(jobs, url));
+        String dimension = mc.world.getRegistryKey() != null
+            ? mc.world.getRegistryKey().getValue().toString()
+            : "unknown";
+        processor.submit(jobs, url, dimension, indexedPng.get(), stitchWalls.get());
     }
 
-    private int tickCounter = 0;
+    private long budgetNanos() {
+        return (long) (tickBudgetMs.get() * 1_000_000L);
+    }
 
-    private void processJobs(List<MapJob> jobs, String url) {
-        int stored = 0;
-        int sent = 0;
+    /**
+     * Returns false when the map limit or the tick deadline cut the pass short; the unvisited chunks stay dirty.
+     */
+    private boolean collectFromWorld(List<MapProcessor.MapJob> jobs, int r, double radiusSq, long deadline) {
+        boolean[] complete = {true};
+
+        // only chunks whose frames were added, changed or showed a map update since the last visit
+        frameIndex.forEachDirtyFrame(mc.player.getChunkPos(), (r >> 4) + 1, entityId -> {
+            if (jobs.size() >= maxMapsPerScan.get() || System.nanoTime() > deadline) {
+                complete[0] = false;
+                return FrameIndex.Visit.STOP;
+            }
 
-        String dimension = (mc.world != null && mc.world.getRegistryKey() != null)
-            ? mc.world.getRegistryKey().getValue().toString()
-            : "unknown";
+            if (!(mc.world.getEntityById(entityId) instanceof ItemFrameEntity frame)) return FrameIndex.Visit.DONE;
+            // the chunk reaches past the radius: keep it dirty until the player comes close enough
+            if (frame.squaredDistanceTo(mc.player) > radiusSq) return FrameIndex.Visit.DEFER;
 
-        boolean sendDiscord = url != null && !url.isBlank();
+            collectFrame(frame, jobs);
+            return FrameIndex.Visit.DONE;
+        });
+        return complete[0];
+    }
 
-        for (MapJob job : jobs) {
-            try {
-                BufferedImage img = mapToImage(job.colors);
-                byte[] png = imageToPng(img);
-
-                if (db != null && job.mapId != null && !job.mapId.equals("unknown")) {
-                    db.upsertMap(
-                        job.mapId,
-                        dimension,
-                        job.pos.getX(), job.pos.getY(), job.pos.getZ(),
-                        png,
-                        job.colors
-                    );
-                    stored++;
-                }
+    private void collectFromPackets(List<MapProcessor.MapJob> jobs, double radiusSq, long deadline) {
+        if (!pendingFrames.isEmpty()) {
+            for (int entityId : pendingFrames) {
+                Entity e = mc.world.getEntityById(entityId);
+                if (!(e instanceof ItemFrameEntity frame)) continue;
 
-                if (sendDiscord) {
-                    String info = "Map " + job.mapId + " at " + job.pos.toShortString();
-                    DiscordWebhookSender.sendPng(url, png, "map.png", info);
-                    sent++;
-                }
-            } catch (Exception ex) {
-                ex.printStackTrace();
+                MapIdComponent idComp = frame.getHeldItemStack().getComponents().get(DataComponentTypes.MAP_ID);
+                if (idComp == null) continue;
+
+                pendingMaps.add(idComp.id());
             }
+            pendingFrames.clear();
         }
 
-        if (stored > 0) System.out.println("[MapScanner] Stored " + stored + " map(s) to DB.");
-        if (sent > 0) System.out.println("[MapScanner] Sent " + sent + " map(s) to Discord.");
+        if (pendingMaps.isEmpty()) return;
+
+        var it = pendingMaps.iterator();
+        // maps left over when the budget runs out stay queued for the next tick
+        while (it.hasNext() && jobs.size() < maxMapsPerScan.get() && System.nanoTime() <= deadline) {
+            int mapId = it.next();
+            it.remove();
+
+            // colour data for a map that isn't (yet) in a known frame is picked up when the frame shows up
+            Integer entityId = frameIndex.frameForMap(mapId);
+            if (entityId == null) continue;
+
+            Entity e = mc.world.getEntityById(entityId);
+            if (!(e instanceof ItemFrameEntity frame)) {
+                frameIndex.remove(entityId);
+                continue;
+            }
+            if (frame.squaredDistanceTo(mc.player) > radiusSq) {
+                deferredMaps.add(mapId);
+                deferredFrom = mc.player.getBlockPos();
+                continue;
+            }
+
+            collectFrame(frame, jobs);
+        }
     }
 
-    private BufferedImage mapToImage(byte[] colors) {
-        int w = 128, h = 128;
-        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    private void collectFrame(ItemFrameEntity frame, List<MapProcessor.MapJob> jobs) {
+        FRAMES_VISITED.increment();
+        ItemStack stack = frame.getHeldItemStack();
+        if (!(stack.getItem() instanceof FilledMapItem)) return;
 
-        if (colors == null || colors.length < w * h) return img;
+        MapState state = FilledMapItem.getMapState(stack, mc.world);
+        if (state == null || state.colors == null) return;
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int idx = y * w + x;
-                int colorByte = colors[idx] & 0xFF;
+        byte[] colors = state.colors;
+        int w = 128, h = 128;
+        if (colors.length < w * h) return;
 
-                int rgb = (colorByte == 0)
-                    ? 0x202020
-                    : MapColor.getRenderColor(colorByte);
 
-                img.setRGB(x, y, rgb);
-            }
+        MapIdComponent idComp = stack.getComponents().get(DataComponentTypes.MAP_ID);
+        if (idComp == null) return;
+
+        // only re-process a map when its content changed since the last capture
+        long hash = ContentHash.hash64(colors, 0, w * h);
+        if (!mapHashes.putIfChanged(idComp.id(), hash)) {
+            DEDUPE_HITS.increment();
+            return;
         }
-        return img;
-    }
+        DEDUPE_MISSES.increment();
 
-    private byte[] imageToPng(BufferedImage img) throws Exception {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ImageIO.write(img, "PNG", out);
-        return out.toByteArray();
+        String idText = "map_" + idComp.id();
+        byte[] snapshot = Arrays.copyOf(colors, w * h);
+        BlockPos pos = frame.getBlockPos();
+        jobs.add(new MapProcessor.MapJob(snapshot, hash, idText, pos, frame.getFacing(), frame.getRotation()));
     }
 
     private boolean looksLikeDiscordWebhook(String url) {
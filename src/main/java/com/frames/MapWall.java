@@ -0,0 +1,209 @@
+package com.frames;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups item-frame maps that hang side by side on one wall (same facing, same plane, edge-adjacent) and stitches
+ * each group into a single image, laid out as a player standing in front of the wall sees it.
+ */
+public final class MapWall {
+    public static final int TILE = 128;
+
+    /** Walls wider or taller than this many maps are cut into sections so one upload stays a sane size. */
+    public static final int MAX_SIDE = 16;
+
+    /** One map in a frame; {@code index} points back into the caller's job list. */
+    public static final class Tile {
+        final int index;
+        final BlockPos pos;
+        final Direction facing;
+        final int rotation;
+        final byte[] colors;
+
+        public Tile(int index, BlockPos pos, Direction facing, int rotation, byte[] colors) {
+            this.index = index;
+            this.pos = pos;
+            this.facing = facing;
+            this.rotation = rotation;
+            this.colors = colors;
+        }
+    }
+
+    final Direction facing;
+    final int width;
+    final int height;
+    // row-major, width * height, null where the wall has no (changed) map
+    final Tile[] cells;
+
+    private MapWall(Direction facing, int width, int height, Tile[] cells) {
+        this.facing = facing;
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Tiles in reading order (left to right, top to bottom). */
+    public List<Tile> tiles() {
+        List<Tile> out = new ArrayList<>();
+        for (Tile t : cells) if (t != null) out.add(t);
+        return out;
+    }
+
+    /**
+     * Splits {@code tiles} into walls. Every tile ends up in exactly one wall; lone maps become 1x1 walls.
+     */
+    public static List<MapWall> group(List<Tile> tiles) {
+        // facing + plane coordinate -> (column, row) -> tile
+        Map<Long, Map<Long, Tile>> planes = new HashMap<>();
+        for (Tile t : tiles) {
+            long plane = ((long) t.facing.ordinal() << 32) | (planeCoord(t) & 0xFFFFFFFFL);
+            planes.computeIfAbsent(plane, k -> new HashMap<>()).put(cellKey(column(t), row(t)), t);
+        }
+
+        List<MapWall> walls = new ArrayList<>();
+        for (Map<Long, Tile> grid : planes.values()) {
+            Map<Long, Tile> unvisited = new HashMap<>(grid);
+            while (!unvisited.isEmpty()) {
+                List<Tile> component = flood(unvisited, unvisited.keySet().iterator().next());
+                split(component, walls);
+            }
+        }
+        return walls;
+    }
+
+    private static List<Tile> flood(Map<Long, Tile> unvisited, long start) {
+        List<Tile> component = new ArrayList<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        queue.add(start);
+        component.add(unvisited.remove(start));
+
+        while (!queue.isEmpty()) {
+            long key = queue.poll();
+            int c = (int) (key >> 32);
+            int r = (int) key;
+            long[] neighbours = {cellKey(c + 1, r), cellKey(c - 1, r), cellKey(c, r + 1), cellKey(c, r - 1)};
+            for (long n : neighbours) {
+                Tile t = unvisited.remove(n);
+                if (t == null) continue;
+                component.add(t);
+                queue.add(n);
+            }
+        }
+        return component;
+    }
+
+    private static void split(List<Tile> component, List<MapWall> out) {
+        int minC = Integer.MAX_VALUE, minR = Integer.MAX_VALUE;
+        for (Tile t : component) {
+            minC = Math.min(minC, column(t));
+            minR = Math.min(minR, row(t));
+        }
+
+        // sections of at most MAX_SIDE x MAX_SIDE maps, keyed by section column/row
+        Map<Long, List<Tile>> sections = new HashMap<>();
+        for (Tile t : component) {
+            int sc = (column(t) - minC) / MAX_SIDE;
+            int sr = (row(t) - minR) / MAX_SIDE;
+            sections.computeIfAbsent(cellKey(sc, sr), k -> new ArrayList<>()).add(t);
+        }
+
+        for (List<Tile> section : sections.values()) {
+            int c0 = Integer.MAX_VALUE, r0 = Integer.MAX_VALUE, c1 = Integer.MIN_VALUE, r1 = Integer.MIN_VALUE;
+            for (Tile t : section) {
+                c0 = Math.min(c0, column(t));
+                r0 = Math.min(r0, row(t));
+                c1 = Math.max(c1, column(t));
+                r1 = Math.max(r1, row(t));
+            }
+
+            int w = c1 - c0 + 1;
+            int h = r1 - r0 + 1;
+            Tile[] cells = new Tile[w * h];
+            for (Tile t : section) cells[(row(t) - r0) * w + (column(t) - c0)] = t;
+            out.add(new MapWall(section.get(0).facing, w, h, cells));
+        }
+    }
+
+    /**
+     * Renders the wall into one {@code width*128 x height*128} buffer of map colour bytes, applying each frame's
+     * rotation. Cells without a map stay colour 0 (background).
+     */
+    public byte[] compose() {
+        int stride = width * TILE;
+        byte[] out = new byte[stride * height * TILE];
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            Tile t = cells[cell];
+            if (t == null) continue;
+
+            int ox = (cell % width) * TILE;
+            int oy = (cell / width) * TILE;
+            int quarterTurns = t.rotation & 3;
+
+            for (int y = 0; y < TILE; y++) {
+                int dst = (oy + y) * stride + ox;
+                for (int x = 0; x < TILE; x++) {
+                    out[dst + x] = t.colors[sourceIndex(x, y, quarterTurns)];
+                }
+            }
+        }
+        return out;
+    }
+
+    // maps only turn in 90 degree steps; frame rotation 1 is a quarter turn clockwise
+    private static int sourceIndex(int x, int y, int quarterTurns) {
+        int last = TILE - 1;
+        return switch (quarterTurns) {
+            case 1 -> (last - x) * TILE + y;
+            case 2 -> (last - y) * TILE + (last - x);
+            case 3 -> x * TILE + (last - y);
+            default -> y * TILE + x;
+        };
+    }
+
+    private static int planeCoord(Tile t) {
+        return switch (t.facing) {
+            case NORTH, SOUTH -> t.pos.getZ();
+            case EAST, WEST -> t.pos.getX();
+            default -> t.pos.getY();
+        };
+    }
+
+    // column grows to the viewer's right, row grows downwards
+    private static int column(Tile t) {
+        return switch (t.facing) {
+            case SOUTH -> t.pos.getX();
+            case NORTH -> -t.pos.getX();
+            case EAST -> -t.pos.getZ();
+            case WEST -> t.pos.getZ();
+            default -> t.pos.getX();
+        };
+    }
+
+    private static int row(Tile t) {
+        return switch (t.facing) {
+            case UP -> t.pos.getZ();
+            case DOWN -> -t.pos.getZ();
+            default -> -t.pos.getY();
+        };
+    }
+
+    private static long cellKey(int column, int row) {
+        return ((long) column << 32) | (row & 0xFFFFFFFFL);
+    }
+}
@@ -3,16 +3,54 @@ package com.frames;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
 
 public final class ScanDb {
     private final Connection conn;
+    private PreparedStatement upsertStmt;
+    private PreparedStatement blobStmt;
+    private PreparedStatement rtreeStmt;
+    // false when the SQLite build lacks the R*Tree module; region queries then fail, archiving does not
+    private boolean spatial;
+    private final WriteBehindQueue.Lane<MapRow> writeLane;
+    private final WebhookOutbox outbox;
+    // told about every blob once its transaction has committed
+    private volatile LongConsumer blobListener;
 
     public ScanDb(Path dbPath) throws Exception {
+        this(dbPath, true);
+    }
+
+    /**
+     * {@code staged} false opens the archive for direct {@link #upsertMaps} calls only: no write-behind lane and no
+     * outbox, so nothing runs in the background (benchmarks). {@link #enqueueMap} then refuses every row.
+     */
+    ScanDb(Path dbPath, boolean staged) throws Exception {
         Files.createDirectories(dbPath.getParent());
         conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath.toAbsolutePath());
-        conn.setAutoCommit(true);
-        initPragmas();
-        init();
+        try {
+            conn.setAutoCommit(true);
+            initPragmas();
+            init();
+            outbox = staged ? new WebhookOutbox(dbPath, "maps") : null;
+        } catch (Exception e) {
+            closeConnection();
+            throw e;
+        }
+        // registered last, so a failed open leaves nothing on the shared writer
+        writeLane = staged ? WriteBehindQueue.shared().lane("maps", this::upsertMaps) : null;
+    }
+
+    /** Called with the content hash of each blob written by {@link #upsertMaps}, after the commit succeeded. */
+    public void onBlobStored(LongConsumer listener) {
+        this.blobListener = listener;
+    }
+
+    /** Pending webhook deliveries for this archive; null when opened without staging. */
+    public WebhookOutbox outbox() {
+        return outbox;
     }
 
     private void initPragmas() throws SQLException {
@@ -26,51 +64,476 @@ public final class ScanDb {
 
     private void init() throws SQLException {
         try (Statement st = conn.createStatement()) {
+            // image data is stored once per distinct colour content
             st.executeUpdate("""
-                CREATE TABLE IF NOT EXISTS maps (
-                  map_id      TEXT PRIMARY KEY,
-                  dimension   TEXT NOT NULL,
-                  x           INTEGER NOT NULL,
-                  y           INTEGER NOT NULL,
-                  z           INTEGER NOT NULL,
-                  first_seen  INTEGER NOT NULL,
-                  last_seen   INTEGER NOT NULL,
-                  png         BLOB NOT NULL,
-                  colors      BLOB NOT NULL
+                CREATE TABLE IF NOT EXISTS map_blobs (
+                  content_hash INTEGER PRIMARY KEY,
+                  first_seen   INTEGER NOT NULL,
+                  png          BLOB NOT NULL,
+                  colors       BLOB NOT NULL
                 );
             """);
+
+            // archives written before blobs were content-addressed keep png/colors inline in maps
+            if (hasColumn(st, "maps", "png")) migrateInlineBlobs(st);
+
+            st.executeUpdate(CREATE_MAPS);
             st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_maps_last_seen ON maps(last_seen);");
+
+            spatial = initSpatial(st);
         }
     }
 
-    public void upsertMap(String mapId, String dimension, int x, int y, int z, byte[] png, byte[] colors) throws SQLException {
+    private static final String CREATE_MAPS = """
+        CREATE TABLE IF NOT EXISTS maps (
+          map_id       TEXT PRIMARY KEY,
+          dimension    TEXT NOT NULL,
+          x            INTEGER NOT NULL,
+          y            INTEGER NOT NULL,
+          z            INTEGER NOT NULL,
+          first_seen   INTEGER NOT NULL,
+          last_seen    INTEGER NOT NULL,
+          content_hash INTEGER NOT NULL   -- map_blobs.content_hash
+        );
+    """;
+
+    /**
+     * Moves inline png/colors into map_blobs (one row per distinct content) and rebuilds maps without them.
+     * Freed pages are reused by later writes; run VACUUM externally to shrink the file right away.
+     */
+    private void migrateInlineBlobs(Statement st) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            if (!hasColumn(st, "maps", "content_hash")) {
+                st.executeUpdate("ALTER TABLE maps ADD COLUMN content_hash INTEGER;");
+            }
+
+            // rows from before content hashes were stored
+            List<String> ids = new ArrayList<>();
+            List<Long> hashes = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery("SELECT map_id, colors FROM maps WHERE content_hash IS NULL;")) {
+                while (rs.next()) {
+                    ids.add(rs.getString(1));
+                    hashes.add(ContentHash.hash64(rs.getBytes(2)));
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE maps SET content_hash = ? WHERE map_id = ?")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setLong(1, hashes.get(i));
+                    ps.setString(2, ids.get(i));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            st.executeUpdate("""
+                INSERT OR IGNORE INTO map_blobs(content_hash, first_seen, png, colors)
+                SELECT content_hash, MIN(first_seen), png, colors FROM maps GROUP BY content_hash;
+            """);
+
+            st.executeUpdate("ALTER TABLE maps RENAME TO maps_inline;");
+            st.executeUpdate(CREATE_MAPS);
+            st.executeUpdate("""
+                INSERT INTO maps(map_id, dimension, x, y, z, first_seen, last_seen, content_hash)
+                SELECT map_id, dimension, x, y, z, first_seen, last_seen, content_hash FROM maps_inline;
+            """);
+            st.executeUpdate("DROP TABLE maps_inline;");
+
+            conn.commit();
+            System.out.println("[MapScanner] Migrated map archive to content-addressed blobs.");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * R*Tree over map positions: x/z plus a "place" axis holding {@link #placeKey} of the dimension, so region queries
+     * only touch nodes of the right dimension. The archive has no server column, so maps are keyed on dimension only.
+     * Entries are keyed by a hash of map_id (stable across VACUUM, unlike the maps rowid) and written alongside each
+     * upsert; map_id is kept as an auxiliary column to join back to maps.
+     */
+    private boolean initSpatial(Statement st) {
+        try {
+            boolean exists;
+            try (ResultSet rs = st.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'maps_rtree';")) {
+                exists = rs.next();
+            }
+
+            st.executeUpdate("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS maps_rtree USING rtree_i32(
+                  id, min_x, max_x, min_z, max_z, min_place, max_place, +map_id
+                );
+            """);
+
+            if (!exists) backfillSpatial(st);
+            return true;
+        } catch (SQLException e) {
+            System.out.println("[MapScanner] R*Tree unavailable, region queries disabled: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void backfillSpatial(Statement st) throws SQLException {
+        conn.setAutoCommit(false);
+        try (ResultSet rs = st.executeQuery("SELECT map_id, dimension, x, z FROM maps;");
+             PreparedStatement ps = rtreeStatement()) {
+            int count = 0;
+            while (rs.next()) {
+                bindRtree(ps, rs.getString(1), rs.getString(2), rs.getInt(3), rs.getInt(4));
+                ps.addBatch();
+                if (++count % 5_000 == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            if (count > 0) System.out.println("[MapScanner] Indexed positions of " + count + " archived map(s).");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            rtreeStmt = null;
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static boolean hasColumn(Statement st, String table, String column) throws SQLException {
+        try (ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ");")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One archived map. {@code png}/{@code colors} may be null when the blob for {@code contentHash} is already
+     * stored; the row then only references it.
+     */
+    public static final class MapRow {
+        final String mapId;
+        final String dimension;
+        final int x;
+        final int y;
+        final int z;
+        final byte[] png;
+        final byte[] colors;
+        final long contentHash;
+
+        public MapRow(String mapId, String dimension, int x, int y, int z, byte[] png, byte[] colors, long contentHash) {
+            this.mapId = mapId;
+            this.dimension = dimension;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.png = png;
+            this.colors = colors;
+            this.contentHash = contentHash;
+        }
+    }
+
+    public void upsertMap(String mapId, String dimension, int x, int y, int z, byte[] png, byte[] colors, long contentHash) throws SQLException {
+        upsertMaps(List.of(new MapRow(mapId, dimension, x, y, z, png, colors, contentHash)));
+    }
+
+    /**
+     * Upserts all rows with cached statements and a single transaction (one WAL commit per batch).
+     */
+    public synchronized void upsertMaps(List<MapRow> rows) throws SQLException {
+        if (rows.isEmpty()) return;
+
         long now = System.currentTimeMillis();
+        PreparedStatement blobs = blobStatement();
+        PreparedStatement ps = upsertStatement();
+
+        conn.setAutoCommit(false);
+        try {
+            boolean anyBlob = false;
+            for (MapRow row : rows) {
+                if (row.png == null || row.colors == null) continue;
+                blobs.setLong(1, row.contentHash);
+                blobs.setLong(2, now);
+                blobs.setBytes(3, row.png);
+                blobs.setBytes(4, row.colors);
+                blobs.addBatch();
+                anyBlob = true;
+            }
+            if (anyBlob) blobs.executeBatch();
+
+            for (MapRow row : rows) {
+                ps.setString(1, row.mapId);
+                ps.setString(2, row.dimension);
+                ps.setInt(3, row.x);
+                ps.setInt(4, row.y);
+                ps.setInt(5, row.z);
+                ps.setLong(6, now);
+                ps.setLong(7, now);
+                ps.setLong(8, row.contentHash);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            if (spatial) {
+                PreparedStatement rtree = rtreeStatement();
+                for (MapRow row : rows) {
+                    bindRtree(rtree, row.mapId, row.dimension, row.x, row.z);
+                    rtree.addBatch();
+                }
+                rtree.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            blobs.clearBatch();
+            ps.clearBatch();
+            if (rtreeStmt != null) rtreeStmt.clearBatch();
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        LongConsumer listener = blobListener;
+        if (listener != null) {
+            for (MapRow row : rows) {
+                if (row.png != null && row.colors != null) listener.accept(row.contentHash);
+            }
+        }
+    }
+
+    private PreparedStatement upsertStatement() throws SQLException {
+        if (upsertStmt == null) {
+            upsertStmt = conn.prepareStatement("""
+                INSERT INTO maps(map_id, dimension, x, y, z, first_seen, last_seen, content_hash)
+                VALUES(?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT(map_id) DO UPDATE SET
+                  dimension = excluded.dimension,
+                  x = excluded.x,
+                  y = excluded.y,
+                  z = excluded.z,
+                  last_seen = excluded.last_seen,
+                  content_hash = excluded.content_hash
+            """);
+        }
+        return upsertStmt;
+    }
+
+    private PreparedStatement rtreeStatement() throws SQLException {
+        if (rtreeStmt == null) {
+            // a map moved to another frame replaces its old entry
+            rtreeStmt = conn.prepareStatement("""
+                INSERT OR REPLACE INTO maps_rtree(id, min_x, max_x, min_z, max_z, min_place, max_place, map_id)
+                VALUES(?, ?, ?, ?, ?, ?, ?, ?)
+            """);
+        }
+        return rtreeStmt;
+    }
+
+    private static void bindRtree(PreparedStatement ps, String mapId, String dimension, int x, int z) throws SQLException {
+        int place = placeKey(dimension);
+        ps.setLong(1, ContentHash.hash64(mapId));
+        ps.setInt(2, x);
+        ps.setInt(3, x);
+        ps.setInt(4, z);
+        ps.setInt(5, z);
+        ps.setInt(6, place);
+        ps.setInt(7, place);
+        ps.setString(8, mapId);
+    }
+
+    /** 32-bit key of a dimension on the R*Tree's place axis. */
+    static int placeKey(String dimension) {
+        long h = ContentHash.hash64(dimension == null ? "unknown" : dimension);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private PreparedStatement blobStatement() throws SQLException {
+        if (blobStmt == null) {
+            blobStmt = conn.prepareStatement("""
+                INSERT OR IGNORE INTO map_blobs(content_hash, first_seen, png, colors)
+                VALUES(?, ?, ?, ?)
+            """);
+        }
+        return blobStmt;
+    }
+
+    /**
+     * Hands the row to the shared write-behind stage; a newer row for the same map id replaces a pending one.
+     * Blocks only when the write-behind queue is full. Returns false if the archive was closed meanwhile.
+     */
+    public boolean enqueueMap(MapRow row) throws InterruptedException {
+        return writeLane != null && writeLane.submit(row.mapId, row);
+    }
+
+    /** An archived map's position, as returned by region queries. */
+    public static final class MapLocation {
+        public final String mapId;
+        public final String dimension;
+        public final int x;
+        public final int y;
+        public final int z;
+        public final long lastSeen;
+        public final long contentHash;
+
+        MapLocation(String mapId, String dimension, int x, int y, int z, long lastSeen, long contentHash) {
+            this.mapId = mapId;
+            this.dimension = dimension;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.lastSeen = lastSeen;
+            this.contentHash = contentHash;
+        }
+    }
+
+    /**
+     * Maps in {@code dimension} whose x/z lie inside the box (inclusive) and that were seen at or after
+     * {@code seenSince} (0 for any time). At most {@code limit} rows, in no particular order.
+     */
+    public synchronized List<MapLocation> mapsInRegion(String dimension, int minX, int minZ, int maxX, int maxZ,
+                                                       long seenSince, int limit) throws SQLException {
+        if (!spatial) throw new SQLException("Region queries need SQLite with R*Tree");
+
+        int place = placeKey(dimension);
+        List<MapLocation> out = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement("""
-            INSERT INTO maps(map_id, dimension, x, y, z, first_seen, last_seen, png, colors)
-            VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?)
-            ON CONFLICT(map_id) DO UPDATE SET
-              dimension = excluded.dimension,
-              x = excluded.x,
-              y = excluded.y,
-              z = excluded.z,
-              last_seen = excluded.last_seen,
-              png = excluded.png,
-              colors = excluded.colors
+            SELECT m.map_id, m.dimension, m.x, m.y, m.z, m.last_seen, m.content_hash
+            FROM maps_rtree r
+            JOIN maps m ON m.map_id = r.map_id
+            WHERE r.min_place >= ? AND r.max_place <= ?
+              AND r.min_x >= ? AND r.max_x <= ?
+              AND r.min_z >= ? AND r.max_z <= ?
+              AND m.dimension = ? AND m.last_seen >= ?
+            LIMIT ?
         """)) {
-            ps.setString(1, mapId);
-            ps.setString(2, dimension);
-            ps.setInt(3, x);
-            ps.setInt(4, y);
-            ps.setInt(5, z);
-            ps.setLong(6, now);
-            ps.setLong(7, now);
-            ps.setBytes(8, png);
-            ps.setBytes(9, colors);
-            ps.executeUpdate();
+            ps.setInt(1, place);
+            ps.setInt(2, place);
+            ps.setInt(3, Math.min(minX, maxX));
+            ps.setInt(4, Math.max(minX, maxX));
+            ps.setInt(5, Math.min(minZ, maxZ));
+            ps.setInt(6, Math.max(minZ, maxZ));
+            ps.setString(7, dimension);
+            ps.setLong(8, seenSince);
+            ps.setInt(9, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new MapLocation(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getInt(4), rs.getInt(5),
+                        rs.getLong(6), rs.getLong(7)));
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The {@code limit} maps nearest to (x, z) within {@code radius} blocks (horizontal distance), nearest first.
+     * The R*Tree narrows to the bounding box; distance filter, order and limit all run in SQLite.
+     */
+    public synchronized List<MapLocation> mapsInRadius(String dimension, int x, int z, int radius, int limit)
+        throws SQLException {
+        if (!spatial) throw new SQLException("Region queries need SQLite with R*Tree");
+
+        List<MapLocation> out = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+            SELECT m.map_id, m.dimension, m.x, m.y, m.z, m.last_seen, m.content_hash,
+                   (m.x - ?7) * (m.x - ?7) + (m.z - ?8) * (m.z - ?8) AS dist_sq
+            FROM maps_rtree r
+            JOIN maps m ON m.map_id = r.map_id
+            WHERE r.min_place >= ?1 AND r.max_place <= ?1
+              AND r.min_x >= ?2 AND r.max_x <= ?3
+              AND r.min_z >= ?4 AND r.max_z <= ?5
+              AND m.dimension = ?6
+              AND dist_sq <= ?9
+            ORDER BY dist_sq
+            LIMIT ?10
+        """)) {
+            ps.setInt(1, placeKey(dimension));
+            ps.setInt(2, x - radius);
+            ps.setInt(3, x + radius);
+            ps.setInt(4, z - radius);
+            ps.setInt(5, z + radius);
+            ps.setString(6, dimension);
+            ps.setInt(7, x);
+            ps.setInt(8, z);
+            ps.setLong(9, (long) radius * radius);
+            ps.setInt(10, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new MapLocation(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getInt(4), rs.getInt(5),
+                        rs.getLong(6), rs.getLong(7)));
+                }
+            }
+        }
+        return out;
+    }
+
+    public interface MapHashConsumer {
+        void accept(int mapId, long contentHash);
+    }
+
+    /**
+     * Streams the numeric id and colour hash of up to {@code limit} archived maps, most recently seen first.
+     */
+    public synchronized int forEachMapHash(int limit, MapHashConsumer consumer) throws SQLException {
+        int count = 0;
+        try (PreparedStatement ps = conn.prepareStatement("""
+            SELECT map_id, content_hash
+            FROM maps
+            ORDER BY last_seen DESC
+            LIMIT ?
+        """)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String mapId = rs.getString(1);
+                    if (mapId == null || !mapId.startsWith("map_")) continue;
+
+                    int id;
+                    try {
+                        id = Integer.parseInt(mapId.substring(4));
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+
+                    consumer.accept(id, rs.getLong(2));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Streams the content hashes of up to {@code limit} stored blobs, newest first.
+     */
+    public synchronized int forEachBlobHash(int limit, LongConsumer consumer) throws SQLException {
+        int count = 0;
+        try (PreparedStatement ps = conn.prepareStatement("""
+            SELECT content_hash FROM map_blobs ORDER BY first_seen DESC LIMIT ?
+        """)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getLong(1));
+                    count++;
+                }
+            }
         }
+        return count;
     }
 
     public void close() {
+        if (writeLane != null) writeLane.close();
+        if (outbox != null) outbox.close();
+        closeConnection();
+    }
+
+    private synchronized void closeConnection() {
+        try { if (upsertStmt != null) upsertStmt.close(); } catch (Exception ignored) {}
+        try { if (blobStmt != null) blobStmt.close(); } catch (Exception ignored) {}
+        try { if (rtreeStmt != null) rtreeStmt.close(); } catch (Exception ignored) {}
         try { conn.close(); } catch (Exception ignored) {}
     }
 }
@@ -0,0 +1,298 @@
+package com.frames;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide counters, latency histograms and queue-depth gauges for both scanners.
+ * <p>
+ * Recording is lock-free and cheap enough for the client thread; callers keep the {@link Histogram}/{@link Counter}
+ * they record into in a static field. Read through {@link #summary()} (HUD, chat command) or {@link #writeCsv(Path)}.
+ */
+public final class ScanMetrics {
+    private static final ScanMetrics INSTANCE = new ScanMetrics();
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService csvScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MapScanner-Metrics");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> csvTask;
+    private Path csvPath;
+    private int csvSeconds;
+    // module -> the dump it asked for; the dump runs while anyone wants it
+    private final Map<Object, CsvRequest> csvRequests = new LinkedHashMap<>();
+
+    private ScanMetrics() {
+        gauge("queue.encode", () -> ScanPipeline.shared().queuedTasks());
+        gauge("queue.db", () -> WriteBehindQueue.shared().pendingRows());
+        gauge("queue.webhook", () -> WebhookDispatcher.get().pending());
+    }
+
+    public static ScanMetrics get() {
+        return INSTANCE;
+    }
+
+    /** Histogram of nanosecond durations, shown in milliseconds. */
+    public Histogram timer(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram(n, true));
+    }
+
+    /** Histogram of plain values (counts per scan, sizes). */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram(n, false));
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public void reset() {
+        histograms.values().forEach(Histogram::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    public static final class Counter {
+        final String name;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        void reset() {
+            value.reset();
+        }
+    }
+
+    /**
+     * Log-linear histogram: four sub-buckets per power of two, so percentiles are within 25% of the true value.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 2;
+        private static final int SUB = 1 << SUB_BITS;
+
+        final String name;
+        final boolean nanos;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(String name, boolean nanos) {
+            this.name = name;
+            this.nanos = nanos;
+        }
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        /** Records {@code System.nanoTime() - startNanos}. */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        public double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /** Upper bound of the bucket holding the {@code p}-th percentile (0..100). */
+        public long percentile(double p) {
+            long n = count.sum();
+            if (n == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(n * p / 100.0));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+            count.reset();
+            sum.reset();
+            max.set(0);
+        }
+
+        String format(long value) {
+            return nanos ? String.format(Locale.ROOT, "%.2fms", value / 1_000_000.0) : Long.toString(value);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+            return (exponent - SUB_BITS + 1) * SUB + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB) return bucket;
+            int exponent = bucket / SUB + SUB_BITS - 1;
+            int sub = bucket % SUB;
+            return ((long) (SUB + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+    }
+
+    /**
+     * One line per metric, sorted by name.
+     */
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+
+        for (Histogram h : new TreeMap<>(histograms).values()) {
+            if (h.count() == 0) continue;
+            lines.add(String.format(Locale.ROOT, "%s: n=%d p50=%s p99=%s max=%s",
+                h.name, h.count(), h.format(h.percentile(50)), h.format(h.percentile(99)), h.format(h.max())));
+        }
+
+        for (Counter c : new TreeMap<>(counters).values()) {
+            if (c.get() != 0) lines.add(c.name + ": " + c.get());
+        }
+
+        for (String hitName : new TreeMap<>(counters).keySet()) {
+            if (!hitName.endsWith(".dedupe_hits")) continue;
+            String prefix = hitName.substring(0, hitName.length() - ".dedupe_hits".length());
+            long hits = counter(hitName).get();
+            long misses = counter(prefix + ".dedupe_misses").get();
+            if (hits + misses > 0) {
+                lines.add(String.format(Locale.ROOT, "%s.dedupe_hit_rate: %.1f%%", prefix, 100.0 * hits / (hits + misses)));
+            }
+        }
+
+        for (Map.Entry<String, LongSupplier> g : new TreeMap<>(gauges).entrySet()) {
+            lines.add(g.getKey() + ": " + g.getValue().getAsLong());
+        }
+        return lines;
+    }
+
+    /**
+     * Appends one row per metric (timestamp, name, count, p50, p99, max, mean) to {@code path}.
+     * Durations are written in nanoseconds.
+     */
+    public synchronized void writeCsv(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        boolean header = !Files.exists(path);
+        long now = System.currentTimeMillis();
+
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (header) w.write("timestamp_ms,metric,count,p50,p99,max,mean\n");
+
+            for (Histogram h : new TreeMap<>(histograms).values()) {
+                w.write(String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%.1f%n",
+                    now, h.name, h.count(), h.percentile(50), h.percentile(99), h.max(), h.mean()));
+            }
+            for (Counter c : new TreeMap<>(counters).values()) {
+                w.write(now + "," + c.name + "," + c.get() + ",,,,\n");
+            }
+            for (Map.Entry<String, LongSupplier> g : new TreeMap<>(gauges).entrySet()) {
+                w.write(now + "," + g.getKey() + "," + g.getValue().getAsLong() + ",,,,\n");
+            }
+        }
+    }
+
+    private static final class CsvRequest {
+        final Path path;
+        final int seconds;
+
+        CsvRequest(Path path, int seconds) {
+            this.path = path;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * Asks for a snapshot to be appended to {@code path} every {@code seconds} on behalf of {@code owner}; 0 withdraws
+     * the owner's request. While several owners want a dump the shortest interval (and its path) wins, and the dump
+     * stops only when none is left. A request matching the running dump keeps it as is.
+     */
+    public synchronized void scheduleCsv(Object owner, Path path, int seconds) {
+        if (seconds <= 0) {
+            csvRequests.remove(owner);
+        } else {
+            csvRequests.put(owner, new CsvRequest(path, seconds));
+        }
+
+        CsvRequest wanted = null;
+        for (CsvRequest r : csvRequests.values()) {
+            if (wanted == null || r.seconds < wanted.seconds) wanted = r;
+        }
+
+        if (wanted == null) {
+            if (csvTask != null) csvTask.cancel(false);
+            csvTask = null;
+            csvPath = null;
+            csvSeconds = 0;
+            return;
+        }
+        if (csvTask != null && wanted.path.equals(csvPath) && wanted.seconds == csvSeconds) return;
+
+        if (csvTask != null) csvTask.cancel(false);
+        Path target = wanted.path;
+        csvPath = target;
+        csvSeconds = wanted.seconds;
+        csvTask = csvScheduler.scheduleAtFixedRate(() -> {
+            try {
+                writeCsv(target);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, csvSeconds, csvSeconds, TimeUnit.SECONDS);
+    }
+}
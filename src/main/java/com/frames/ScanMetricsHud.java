@@ -0,0 +1,62 @@
+package com.frames;
+
+import meteordevelopment.meteorclient.settings.BoolSetting;
+import meteordevelopment.meteorclient.settings.ColorSetting;
+import meteordevelopment.meteorclient.settings.Setting;
+import meteordevelopment.meteorclient.settings.SettingGroup;
+import meteordevelopment.meteorclient.systems.hud.HudElement;
+import meteordevelopment.meteorclient.systems.hud.HudElementInfo;
+import meteordevelopment.meteorclient.systems.hud.HudRenderer;
+import meteordevelopment.meteorclient.utils.render.color.SettingColor;
+
+import java.util.List;
+
+/**
+ * HUD readout of {@link ScanMetrics}: scan times, visit counts, dedupe hit rates, latencies and queue depths.
+ */
+public class ScanMetricsHud extends HudElement {
+    public static final HudElementInfo<ScanMetricsHud> INFO = new HudElementInfo<>(
+        MapFrameAddon.HUD_GROUP,
+        "scan-metrics",
+        "Map and sign scanner throughput, latency and queue depths.",
+        ScanMetricsHud::new
+    );
+
+    private final SettingGroup sgGeneral = settings.getDefaultGroup();
+
+    private final Setting<Boolean> shadow = sgGeneral.add(new BoolSetting.Builder()
+        .name("shadow")
+        .description("Renders a shadow behind the text.")
+        .defaultValue(true)
+        .build()
+    );
+
+    private final Setting<SettingColor> color = sgGeneral.add(new ColorSetting.Builder()
+        .name("color")
+        .description("Text color.")
+        .defaultValue(new SettingColor(255, 255, 255))
+        .build()
+    );
+
+    public ScanMetricsHud() {
+        super(INFO);
+    }
+
+    @Override
+    public void render(HudRenderer renderer) {
+        List<String> lines = ScanMetrics.get().summary();
+        if (lines.isEmpty()) lines = List.of("Scan metrics: no data yet");
+
+        double width = 0;
+        double lineHeight = renderer.textHeight(shadow.get());
+        double y = this.y;
+
+        for (String line : lines) {
+            width = Math.max(width, renderer.textWidth(line, shadow.get()));
+            renderer.text(line, x, y, color.get(), shadow.get());
+            y += lineHeight;
+        }
+
+        setSize(width, lineHeight * lines.size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.frames;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker stages shared by both scanners.
+ * <p>
+ * CPU-bound work (palette conversion, PNG encoding) runs on a small pool sized to the machine and fed through a
+ * bounded queue; the map scanner checks {@link #acceptsWork(int)} before collecting more. Encoded map batches are
+ * finished (wall stitching, handing rows and sends on) one at a time on a single thread, in submission order. Sign
+ * batches need no encoding and run in order on the {@link #background} thread instead. One-off DB work (archive
+ * opens, warm starts, chat-command lookups) gets its own {@link #query} thread, so a long migration never holds up
+ * sign batches. Rows then go to the single DB writer ({@link WriteBehindQueue}), which blocks producers when full, and sends to the asynchronous network stage
+ * ({@link WebhookOutbox} / {@link WebhookDispatcher}), so a burst is bound by the slowest stage instead of the sum of
+ * all of them.
+ */
+public final class ScanPipeline {
+    public static final int ENCODE_QUEUE_CAPACITY = 256;
+
+    private static final ScanPipeline SHARED = new ScanPipeline();
+
+    private final ThreadPoolExecutor encodePool;
+    private final ExecutorService finisher;
+    private final ExecutorService background;
+    private final ExecutorService query;
+
+    private ScanPipeline() {
+        // leave a core for the game itself
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+        encodePool = new ThreadPoolExecutor(
+            threads, threads,
+            30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(ENCODE_QUEUE_CAPACITY),
+            daemonThreads("MapScanner-Encode"),
+            // last resort only; scanners stop collecting before the queue fills
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        encodePool.allowCoreThreadTimeOut(true);
+
+        finisher = Executors.newSingleThreadExecutor(daemonThreads("MapScanner-Finish"));
+        background = Executors.newSingleThreadExecutor(daemonThreads("MapScanner-Background"));
+        query = Executors.newSingleThreadExecutor(daemonThreads("MapScanner-Query"));
+    }
+
+    public static ScanPipeline shared() {
+        return SHARED;
+    }
+
+    /**
+     * Whether {@code tasks} more encode tasks fit in the queue right now.
+     */
+    public boolean acceptsWork(int tasks) {
+        return encodePool.getQueue().remainingCapacity() >= tasks;
+    }
+
+    public int queuedTasks() {
+        return encodePool.getQueue().size() + encodePool.getActiveCount();
+    }
+
+    public int encodeThreads() {
+        return encodePool.getMaximumPoolSize();
+    }
+
+    /** Runs a task on the encode pool. */
+    public CompletableFuture<Void> run(Runnable task) {
+        return CompletableFuture.runAsync(task, encodePool);
+    }
+
+    /**
+     * Single thread that finishes encoded batches, so their blocking hand-off to the DB writer and outbox never holds
+     * an encode thread. Tasks run in the order they are handed over.
+     */
+    public CompletableFuture<Void> finish(Runnable task) {
+        return CompletableFuture.runAsync(task, finisher);
+    }
+
+    /**
+     * Single thread that runs sign batches in the order they are submitted.
+     */
+    public CompletableFuture<Void> background(Runnable task) {
+        return CompletableFuture.runAsync(task, background);
+    }
+
+    /**
+     * Single thread for one-off DB work (archive opens, warm-start reads, searches), kept apart from the batch stages
+     * so a slow migration or query only delays other queries.
+     */
+    public CompletableFuture<Void> query(Runnable task) {
+        return CompletableFuture.runAsync(task, query);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.frames;
+
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import meteordevelopment.meteorclient.commands.Command;
+import meteordevelopment.meteorclient.systems.modules.Modules;
+import net.minecraft.command.CommandSource;
+
+import java.nio.file.Path;
+
+/**
+ * {@code .scan-stats} prints {@link ScanMetrics} to chat; {@code reset} clears it and {@code dump} appends a snapshot
+ * to {@code scan_metrics.csv} in map-scanner's output folder.
+ */
+public class ScanStatsCommand extends Command {
+    public ScanStatsCommand() {
+        super("scan-stats", "Shows map and sign scanner throughput, latency and queue depths.");
+    }
+
+    @Override
+    public void build(LiteralArgumentBuilder<CommandSource> builder) {
+        builder.executes(context -> {
+            var lines = ScanMetrics.get().summary();
+            if (lines.isEmpty()) info("No scan metrics recorded yet.");
+            // lines contain '%' (hit rates) and chat messages are format strings
+            for (String line : lines) info(line.replace("%", "%%"));
+            return SINGLE_SUCCESS;
+        });
+
+        builder.then(literal("reset").executes(context -> {
+            ScanMetrics.get().reset();
+            info("Scan metrics reset.");
+            return SINGLE_SUCCESS;
+        }));
+
+        builder.then(literal("dump").executes(context -> {
+            Path csv = Modules.get().get(MapRgbScanner.class).outputDir().resolve("scan_metrics.csv");
+            ScanPipeline.shared().query(() -> {
+                try {
+                    ScanMetrics.get().writeCsv(csv);
+                    System.out.println("[MapScanner] Metrics written to " + csv.toAbsolutePath());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            info("Writing scan metrics to " + csv.toAbsolutePath());
+            return SINGLE_SUCCESS;
+        }));
+    }
+}
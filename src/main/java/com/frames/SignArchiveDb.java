@@ -5,21 +5,79 @@ import net.minecraft.util.math.BlockPos;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 public final class SignArchiveDb {
     private static volatile Connection conn;
     private static volatile Path currentPath;
+    private static PreparedStatement insertStmt;
+    private static PreparedStatement searchStmt;
+    private static PreparedStatement searchServerStmt;
+    private static PreparedStatement rtreeStmt;
+    // false when the SQLite build lacks FTS5; archiving still works, search does not
+    private static volatile boolean searchable;
+    // false when the SQLite build lacks the R*Tree module
+    private static volatile boolean spatial;
+
+    // registered once an archive opened successfully, detached again on close()
+    private static volatile WriteBehindQueue.Lane<SignRow> writeLane;
+
+    // own lock: closing the outbox waits on the writer thread, which may itself be waiting for the class lock
+    private static final Object OUTBOX_LOCK = new Object();
+    private static WebhookOutbox outbox;
+    private static Path outboxPath;
 
     private SignArchiveDb() {}
 
-    public static synchronized void init(Path dbPath) {
-        try {
-            if (dbPath == null) throw new IllegalArgumentException("dbPath is null");
+    public static void init(Path dbPath) {
+        if (dbPath == null) throw new IllegalArgumentException("dbPath is null");
+
+        if (!isOpen(dbPath)) {
+            // pending rows belong to the previous file; write them before switching
+            WriteBehindQueue.Lane<SignRow> lane = writeLane;
+            if (lane != null) lane.flush();
+            open(dbPath);
+        }
+        switchOutbox(dbPath);
+    }
+
+    private static void switchOutbox(Path dbPath) {
+        synchronized (OUTBOX_LOCK) {
+            if (outbox != null && dbPath != null && dbPath.equals(outboxPath)) return;
 
-            // If already open to same file, do nothing
-            if (conn != null && currentPath != null && currentPath.equals(dbPath)) return;
+            if (outbox != null) outbox.close();
+            outbox = null;
+            outboxPath = null;
+            if (dbPath == null) return;
 
-            close();
+            try {
+                outbox = new WebhookOutbox(dbPath, "signs");
+                outboxPath = dbPath;
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Pending webhook deliveries for the open archive, or null if it could not be opened. */
+    public static WebhookOutbox outbox() {
+        synchronized (OUTBOX_LOCK) {
+            return outbox;
+        }
+    }
+
+    private static synchronized boolean isOpen(Path dbPath) {
+        return conn != null && currentPath != null && currentPath.equals(dbPath);
+    }
+
+    private static synchronized void open(Path dbPath) {
+        try {
+            if (isOpen(dbPath)) return;
+
+            closeConnection();
 
             Files.createDirectories(dbPath.getParent());
             conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath.toAbsolutePath());
@@ -33,90 +91,632 @@ public final class SignArchiveDb {
                 st.execute("PRAGMA temp_store=MEMORY;");
                 st.execute("PRAGMA busy_timeout=5000;");
 
-                st.executeUpdate("""
-                    CREATE TABLE IF NOT EXISTS signs (
-                      sign_key     TEXT PRIMARY KEY,     -- unique key for dedupe
-                      first_seen   INTEGER NOT NULL,
-                      last_seen    INTEGER NOT NULL,
-                      dimension    TEXT,
-                      server       TEXT,
-                      x            INTEGER NOT NULL,
-                      y            INTEGER NOT NULL,
-                      z            INTEGER NOT NULL,
-                      front        TEXT NOT NULL,
-                      back         TEXT NOT NULL,
-                      content_key  TEXT NOT NULL
-                    );
-                """);
+                // archives from before hashed keys used the full text as a TEXT primary key
+                if (hasColumn(st, "signs", "sign_key")) migrateTextKeys(st);
+
+                st.executeUpdate(CREATE_SIGNS);
 
                 st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_signs_last_seen ON signs(last_seen);");
                 st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_signs_server ON signs(server);");
+
+                searchable = initSearch(st);
+                spatial = initSpatial(st);
             }
+
+            if (writeLane == null) writeLane = WriteBehindQueue.shared().lane("signs", SignArchiveDb::insertSigns);
         } catch (Exception e) {
             e.printStackTrace();
+            // no half-open archive: isOpen() stays false and the next init starts over
+            closeConnection();
             throw new RuntimeException("SignArchiveDb init failed: " + e.getMessage(), e);
         }
     }
 
+    private static final String CREATE_SIGNS = """
+        CREATE TABLE IF NOT EXISTS signs (
+          sign_id      INTEGER PRIMARY KEY,  -- signId(): 64-bit hash of server, dimension, position and text
+          first_seen   INTEGER NOT NULL,
+          last_seen    INTEGER NOT NULL,
+          dimension    TEXT,
+          server       TEXT,
+          x            INTEGER NOT NULL,
+          y            INTEGER NOT NULL,
+          z            INTEGER NOT NULL,
+          front        TEXT NOT NULL,
+          back         TEXT NOT NULL
+        );
+    """;
+
+    /**
+     * Rebuilds a sign_key/content_key table with hashed sign_id keys. Ids are computed here rather than in SQL so they
+     * match {@link #signId}. Freed pages are reused by later writes; run VACUUM externally to shrink the file right away.
+     */
+    private static void migrateTextKeys(Statement st) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            st.executeUpdate("DROP INDEX IF EXISTS idx_signs_last_seen;");
+            st.executeUpdate("DROP INDEX IF EXISTS idx_signs_server;");
+            st.executeUpdate("ALTER TABLE signs RENAME TO signs_text;");
+            st.executeUpdate(CREATE_SIGNS);
+
+            int migrated = 0;
+            try (ResultSet rs = st.executeQuery("""
+                     SELECT first_seen, last_seen, dimension, server, x, y, z, front, back FROM signs_text;
+                 """);
+                 PreparedStatement ps = conn.prepareStatement("""
+                     INSERT INTO signs(sign_id, first_seen, last_seen, dimension, server, x, y, z, front, back)
+                     VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                     ON CONFLICT(sign_id) DO UPDATE SET
+                       first_seen = MIN(first_seen, excluded.first_seen),
+                       last_seen  = MAX(last_seen, excluded.last_seen)
+                 """)) {
+                while (rs.next()) {
+                    String dimension = rs.getString(3);
+                    String server = rs.getString(4);
+                    int x = rs.getInt(5), y = rs.getInt(6), z = rs.getInt(7);
+                    String front = rs.getString(8);
+                    String back = rs.getString(9);
+
+                    ps.setLong(1, signId(dimension, server, BlockPos.asLong(x, y, z), front, back));
+                    ps.setLong(2, rs.getLong(1));
+                    ps.setLong(3, rs.getLong(2));
+                    ps.setString(4, dimension);
+                    ps.setString(5, server);
+                    ps.setInt(6, x);
+                    ps.setInt(7, y);
+                    ps.setInt(8, z);
+                    ps.setString(9, front);
+                    ps.setString(10, back);
+                    ps.addBatch();
+
+                    if (++migrated % 5_000 == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+
+            st.executeUpdate("DROP TABLE signs_text;");
+            conn.commit();
+            System.out.println("[SignScanner] Migrated " + migrated + " sign(s) to hashed keys.");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Full-text index over front/back as an external-content FTS5 table: the text is stored once (in signs) and
+     * triggers keep the index in step with every insert, delete and text change. Upserts that only bump last_seen
+     * do not touch it.
+     */
+    private static boolean initSearch(Statement st) {
+        try {
+            boolean exists;
+            try (ResultSet rs = st.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'signs_fts';")) {
+                exists = rs.next();
+            }
+
+            st.executeUpdate("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS signs_fts USING fts5(
+                  front, back,
+                  content = 'signs',
+                  content_rowid = 'sign_id',
+                  tokenize = 'unicode61 remove_diacritics 2'
+                );
+            """);
+            st.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS signs_fts_ai AFTER INSERT ON signs BEGIN
+                  INSERT INTO signs_fts(rowid, front, back) VALUES (new.sign_id, new.front, new.back);
+                END;
+            """);
+            st.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS signs_fts_ad AFTER DELETE ON signs BEGIN
+                  INSERT INTO signs_fts(signs_fts, rowid, front, back) VALUES ('delete', old.sign_id, old.front, old.back);
+                END;
+            """);
+            st.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS signs_fts_au AFTER UPDATE OF front, back ON signs BEGIN
+                  INSERT INTO signs_fts(signs_fts, rowid, front, back) VALUES ('delete', old.sign_id, old.front, old.back);
+                  INSERT INTO signs_fts(rowid, front, back) VALUES (new.sign_id, new.front, new.back);
+                END;
+            """);
+
+            if (!exists) {
+                // index the signs archived before search existed; open() runs on the query thread
+                st.executeUpdate("INSERT INTO signs_fts(signs_fts) VALUES ('rebuild');");
+                System.out.println("[SignScanner] Built the sign search index.");
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println("[SignScanner] FTS5 unavailable, sign search disabled: " + e.getMessage());
+            dropSearchTriggers(st);
+            return false;
+        }
+    }
+
+    // triggers left by a build with FTS5 would make every sign write fail against the missing module
+    private static void dropSearchTriggers(Statement st) {
+        try {
+            st.executeUpdate("DROP TRIGGER IF EXISTS signs_fts_ai;");
+            st.executeUpdate("DROP TRIGGER IF EXISTS signs_fts_ad;");
+            st.executeUpdate("DROP TRIGGER IF EXISTS signs_fts_au;");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * R*Tree over sign positions: x/z plus a "place" axis holding {@link #placeKey} of server and dimension, so a
+     * region query only walks nodes of one world. Entries share the sign's id; a trigger drops them with the sign.
+     */
+    private static boolean initSpatial(Statement st) {
+        try {
+            boolean exists;
+            try (ResultSet rs = st.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'signs_rtree';")) {
+                exists = rs.next();
+            }
+
+            st.executeUpdate("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS signs_rtree USING rtree_i32(
+                  id, min_x, max_x, min_z, max_z, min_place, max_place
+                );
+            """);
+            st.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS signs_rtree_ad AFTER DELETE ON signs BEGIN
+                  DELETE FROM signs_rtree WHERE id = old.sign_id;
+                END;
+            """);
+
+            if (!exists) backfillSpatial(st);
+            return true;
+        } catch (SQLException e) {
+            System.out.println("[SignScanner] R*Tree unavailable, region queries disabled: " + e.getMessage());
+            dropSpatialTrigger(st);
+            return false;
+        }
+    }
+
+    // like the search triggers: left behind by a build with R*Tree, it would make every sign delete fail
+    private static void dropSpatialTrigger(Statement st) {
+        try {
+            st.executeUpdate("DROP TRIGGER IF EXISTS signs_rtree_ad;");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void backfillSpatial(Statement st) throws SQLException {
+        conn.setAutoCommit(false);
+        try (ResultSet rs = st.executeQuery("SELECT sign_id, server, dimension, x, z FROM signs;");
+             PreparedStatement ps = rtreeStatement()) {
+            int count = 0;
+            while (rs.next()) {
+                bindRtree(ps, rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5));
+                ps.addBatch();
+                if (++count % 5_000 == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            if (count > 0) System.out.println("[SignScanner] Indexed positions of " + count + " archived sign(s).");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            rtreeStmt = null;
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static PreparedStatement rtreeStatement() throws SQLException {
+        if (rtreeStmt == null) {
+            rtreeStmt = conn.prepareStatement("""
+                INSERT OR REPLACE INTO signs_rtree(id, min_x, max_x, min_z, max_z, min_place, max_place)
+                VALUES(?, ?, ?, ?, ?, ?, ?)
+            """);
+        }
+        return rtreeStmt;
+    }
+
+    private static void bindRtree(PreparedStatement ps, long signId, String server, String dimension,
+                                  int x, int z) throws SQLException {
+        int place = placeKey(server, dimension);
+        ps.setLong(1, signId);
+        ps.setInt(2, x);
+        ps.setInt(3, x);
+        ps.setInt(4, z);
+        ps.setInt(5, z);
+        ps.setInt(6, place);
+        ps.setInt(7, place);
+    }
+
+    /** 32-bit key of a server + dimension on the R*Tree's place axis. */
+    static int placeKey(String server, String dimension) {
+        long h = ContentHash.combine(
+            ContentHash.hash64(server == null ? "unknown" : server),
+            ContentHash.hash64(dimension == null ? "unknown" : dimension)
+        );
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static boolean hasColumn(Statement st, String table, String column) throws SQLException {
+        try (ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ");")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+
+    public static final class SignRow {
+        final long firstSeenMs;
+        final String dimension;
+        final String server;
+        final BlockPos pos;
+        final String front;
+        final String back;
+
+        public SignRow(long firstSeenMs, String dimension, String server, BlockPos pos,
+                       String front, String back) {
+            this.firstSeenMs = firstSeenMs;
+            this.dimension = dimension;
+            this.server = server;
+            this.pos = pos;
+            this.front = front;
+            this.back = back;
+        }
+    }
+
     public static void insertSign(
         long firstSeenMs,
         String dimension,
         String server,
         BlockPos pos,
         String front,
-        String back,
-        String contentKey
+        String back
     ) throws SQLException {
+        insertSigns(List.of(new SignRow(firstSeenMs, dimension, server, pos, front, back)));
+    }
+
+    /**
+     * Inserts/updates all rows with one cached statement and a single transaction.
+     */
+    public static synchronized void insertSigns(List<SignRow> rows) throws SQLException {
         if (conn == null) throw new SQLException("SignArchiveDb not initialized");
-        if (pos == null) throw new SQLException("pos is null");
+        if (rows.isEmpty()) return;
 
         long now = System.currentTimeMillis();
-        String signKey = buildSignKey(dimension, server, pos, front, back);
+        PreparedStatement ps = insertStatement();
+        PreparedStatement rtree = spatial ? rtreeStatement() : null;
+
+        conn.setAutoCommit(false);
+        try {
+            for (SignRow row : rows) {
+                if (row.pos == null) throw new SQLException("pos is null");
+
+                long id = signId(row.dimension, row.server, row.pos.asLong(), row.front, row.back);
+                ps.setLong(1, id);
+                ps.setLong(2, row.firstSeenMs > 0 ? row.firstSeenMs : now);
+                ps.setLong(3, now);
+                ps.setString(4, row.dimension);
+                ps.setString(5, row.server);
+                ps.setInt(6, row.pos.getX());
+                ps.setInt(7, row.pos.getY());
+                ps.setInt(8, row.pos.getZ());
+                ps.setString(9, row.front == null ? "" : row.front);
+                ps.setString(10, row.back == null ? "" : row.back);
+                ps.addBatch();
+
+                if (spatial) {
+                    bindRtree(rtree, id, row.server, row.dimension, row.pos.getX(), row.pos.getZ());
+                    rtree.addBatch();
+                }
+            }
+            ps.executeBatch();
+            if (spatial) rtree.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            ps.clearBatch();
+            if (rtree != null) rtree.clearBatch();
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static PreparedStatement insertStatement() throws SQLException {
+        if (insertStmt == null) {
+            insertStmt = conn.prepareStatement("""
+                INSERT INTO signs(
+                  sign_id, first_seen, last_seen, dimension, server, x, y, z, front, back
+                ) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT(sign_id) DO UPDATE SET
+                  last_seen   = excluded.last_seen
+            """);
+        }
+        return insertStmt;
+    }
+
+    /**
+     * Hands the row to the shared write-behind stage; a newer row for the same sign replaces a pending one.
+     * Blocks only when the write-behind queue is full. Returns false if no archive is open.
+     */
+    public static boolean enqueueSign(SignRow row) throws InterruptedException {
+        if (row.pos == null) throw new IllegalArgumentException("pos is null");
+        WriteBehindQueue.Lane<SignRow> lane = writeLane;
+        if (lane == null) return false;
+        return lane.submit(signId(row.dimension, row.server, row.pos.asLong(), row.front, row.back), row);
+    }
+
+    /**
+     * Streams the in-memory dedupe key of up to {@code limit} archived signs on {@code server}, most recently
+     * seen first. Keys match the ones SignScanner builds (see {@link #dedupeKey}).
+     */
+    public static synchronized int forEachSignKey(String server, int limit, LongConsumer consumer) throws SQLException {
+        if (conn == null) throw new SQLException("SignArchiveDb not initialized");
 
+        int count = 0;
         try (PreparedStatement ps = conn.prepareStatement("""
-            INSERT INTO signs(
-              sign_key, first_seen, last_seen, dimension, server, x, y, z, front, back, content_key
-            ) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            ON CONFLICT(sign_key) DO UPDATE SET
-              last_seen   = excluded.last_seen,
-              dimension   = excluded.dimension,
-              server      = excluded.server,
-              x           = excluded.x,
-              y           = excluded.y,
-              z           = excluded.z,
-              front       = excluded.front,
-              back        = excluded.back,
-              content_key = excluded.content_key
+            SELECT x, y, z, front, back
+            FROM signs
+            WHERE server = ?
+            ORDER BY last_seen DESC
+            LIMIT ?
         """)) {
-            ps.setString(1, signKey);
-            ps.setLong(2, firstSeenMs > 0 ? firstSeenMs : now);
-            ps.setLong(3, now);
-            ps.setString(4, dimension);
-            ps.setString(5, server);
-            ps.setInt(6, pos.getX());
-            ps.setInt(7, pos.getY());
-            ps.setInt(8, pos.getZ());
-            ps.setString(9, front == null ? "" : front);
-            ps.setString(10, back == null ? "" : back);
-            ps.setString(11, contentKey == null ? "" : contentKey);
-            ps.executeUpdate();
-        }
-    }
-
-    private static String buildSignKey(String dimension, String server, BlockPos pos, String front, String back) {
-        // dedupe key
-        String dim = (dimension == null) ? "unknown" : dimension;
-        String srv = (server == null) ? "unknown" : server;
-        String f = (front == null) ? "" : front;
-        String b = (back == null) ? "" : back;
-        return srv + "|" + dim + "|" + pos.getX() + "|" + pos.getY() + "|" + pos.getZ() + "|" + f + "|" + b;
-    }
-
-    public static synchronized void close() {
+            ps.setString(1, server);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long pos = BlockPos.asLong(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+                    consumer.accept(dedupeKey(pos, rs.getString(4), rs.getString(5)));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** One search result. */
+    public static final class SignHit {
+        public final long signId;
+        public final String dimension;
+        public final String server;
+        public final int x;
+        public final int y;
+        public final int z;
+        public final String front;
+        public final String back;
+        public final long lastSeen;
+
+        SignHit(long signId, String dimension, String server, int x, int y, int z,
+                String front, String back, long lastSeen) {
+            this.signId = signId;
+            this.dimension = dimension;
+            this.server = server;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.front = front;
+            this.back = back;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    public static boolean isSearchable() {
+        return conn != null && searchable;
+    }
+
+    /**
+     * Runs {@link #search} on the pipeline's query thread.
+     */
+    public static CompletableFuture<List<SignHit>> searchAsync(String text, String server, int page, int pageSize) {
+        CompletableFuture<List<SignHit>> result = new CompletableFuture<>();
+        ScanPipeline.shared().query(() -> {
+            try {
+                result.complete(search(text, server, page, pageSize));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Signs whose front or back contains every word of {@code text} (as a word prefix, case and accent
+     * insensitive), best matches first. {@code page} starts at 0; {@code server} null searches all servers.
+     */
+    public static synchronized List<SignHit> search(String text, String server, int page, int pageSize) throws SQLException {
+        if (conn == null) throw new SQLException("SignArchiveDb not initialized");
+        if (!searchable) throw new SQLException("Sign search needs SQLite with FTS5");
+
+        String match = matchExpression(text);
+        if (match.isEmpty()) return List.of();
+
+        PreparedStatement ps;
+        if (server == null) {
+            if (searchStmt == null) searchStmt = conn.prepareStatement(searchSql(false));
+            ps = searchStmt;
+        } else {
+            if (searchServerStmt == null) searchServerStmt = conn.prepareStatement(searchSql(true));
+            ps = searchServerStmt;
+        }
+
+        int i = 1;
+        ps.setString(i++, match);
+        if (server != null) ps.setString(i++, server);
+        ps.setInt(i++, pageSize);
+        ps.setInt(i, Math.max(0, page) * pageSize);
+
+        List<SignHit> hits = new ArrayList<>(pageSize);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                hits.add(new SignHit(rs.getLong(1), rs.getString(2), rs.getString(3),
+                    rs.getInt(4), rs.getInt(5), rs.getInt(6), rs.getString(7), rs.getString(8), rs.getLong(9)));
+            }
+        }
+        return hits;
+    }
+
+    private static String searchSql(boolean byServer) {
+        return "SELECT s.sign_id, s.dimension, s.server, s.x, s.y, s.z, s.front, s.back, s.last_seen"
+            + " FROM signs_fts JOIN signs s ON s.sign_id = signs_fts.rowid"
+            + " WHERE signs_fts MATCH ?"
+            + (byServer ? " AND s.server = ?" : "")
+            + " ORDER BY signs_fts.rank LIMIT ? OFFSET ?";
+    }
+
+    /**
+     * Turns free text into an FTS5 query: every word quoted (so user input is never parsed as syntax) and
+     * prefix-matched, all words required.
+     */
+    static String matchExpression(String text) {
+        if (text == null) return "";
+
+        StringBuilder match = new StringBuilder();
+        for (String word : text.trim().split("\\s+")) {
+            String w = word.replace("\"", "");
+            if (w.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append('"').append(w).append("\"*");
+        }
+        return match.toString();
+    }
+
+    /**
+     * Signs of {@code server} in {@code dimension} whose x/z lie inside the box (inclusive) and that were seen at or
+     * after {@code seenSince} (0 for any time). At most {@code limit} rows, in no particular order.
+     */
+    public static synchronized List<SignHit> signsInRegion(String server, String dimension,
+                                                           int minX, int minZ, int maxX, int maxZ,
+                                                           long seenSince, int limit) throws SQLException {
+        if (conn == null) throw new SQLException("SignArchiveDb not initialized");
+        if (!spatial) throw new SQLException("Region queries need SQLite with R*Tree");
+
+        int place = placeKey(server, dimension);
+        List<SignHit> hits = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+            SELECT s.sign_id, s.dimension, s.server, s.x, s.y, s.z, s.front, s.back, s.last_seen
+            FROM signs_rtree r
+            JOIN signs s ON s.sign_id = r.id
+            WHERE r.min_place >= ? AND r.max_place <= ?
+              AND r.min_x >= ? AND r.max_x <= ?
+              AND r.min_z >= ? AND r.max_z <= ?
+              AND s.server IS ? AND s.dimension IS ? AND s.last_seen >= ?
+            LIMIT ?
+        """)) {
+            ps.setInt(1, place);
+            ps.setInt(2, place);
+            ps.setInt(3, Math.min(minX, maxX));
+            ps.setInt(4, Math.max(minX, maxX));
+            ps.setInt(5, Math.min(minZ, maxZ));
+            ps.setInt(6, Math.max(minZ, maxZ));
+            ps.setString(7, server);
+            ps.setString(8, dimension);
+            ps.setLong(9, seenSince);
+            ps.setInt(10, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    hits.add(new SignHit(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        rs.getInt(4), rs.getInt(5), rs.getInt(6), rs.getString(7), rs.getString(8), rs.getLong(9)));
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * The {@code limit} signs nearest to (x, z) within {@code radius} blocks (horizontal distance), nearest first.
+     * The R*Tree narrows to the bounding box; distance filter, order and limit all run in SQLite.
+     */
+    public static synchronized List<SignHit> signsInRadius(String server, String dimension, int x, int z, int radius,
+                                                           int limit) throws SQLException {
+        if (conn == null) throw new SQLException("SignArchiveDb not initialized");
+        if (!spatial) throw new SQLException("Region queries need SQLite with R*Tree");
+
+        List<SignHit> hits = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+            SELECT s.sign_id, s.dimension, s.server, s.x, s.y, s.z, s.front, s.back, s.last_seen,
+                   (s.x - ?8) * (s.x - ?8) + (s.z - ?9) * (s.z - ?9) AS dist_sq
+            FROM signs_rtree r
+            JOIN signs s ON s.sign_id = r.id
+            WHERE r.min_place >= ?1 AND r.max_place <= ?1
+              AND r.min_x >= ?2 AND r.max_x <= ?3
+              AND r.min_z >= ?4 AND r.max_z <= ?5
+              AND s.server IS ?6 AND s.dimension IS ?7
+              AND dist_sq <= ?10
+            ORDER BY dist_sq
+            LIMIT ?11
+        """)) {
+            ps.setInt(1, placeKey(server, dimension));
+            ps.setInt(2, x - radius);
+            ps.setInt(3, x + radius);
+            ps.setInt(4, z - radius);
+            ps.setInt(5, z + radius);
+            ps.setString(6, server);
+            ps.setString(7, dimension);
+            ps.setInt(8, x);
+            ps.setInt(9, z);
+            ps.setLong(10, (long) radius * radius);
+            ps.setInt(11, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    hits.add(new SignHit(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        rs.getInt(4), rs.getInt(5), rs.getInt(6), rs.getString(7), rs.getString(8), rs.getLong(9)));
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 64-bit dedupe key for a sign: hash of its packed position and front/back text.
+     */
+    public static long dedupeKey(long packedPos, String front, String back) {
+        long textHash = ContentHash.combine(
+            ContentHash.hash64(front == null ? "" : front),
+            ContentHash.hash64(back == null ? "" : back)
+        );
+        return ContentHash.combine(packedPos, textHash);
+    }
+
+    /**
+     * Primary key of a sign in the archive: {@link #dedupeKey} extended with the server and dimension.
+     * Identifies the same sign as the old {@code server|dim|x|y|z|front|back} text key did.
+     */
+    public static long signId(String dimension, String server, long packedPos, String front, String back) {
+        long place = ContentHash.combine(
+            ContentHash.hash64(server == null ? "unknown" : server),
+            ContentHash.hash64(dimension == null ? "unknown" : dimension)
+        );
+        return ContentHash.combine(place, dedupeKey(packedPos, front, back));
+    }
+
+    public static void close() {
+        WriteBehindQueue.Lane<SignRow> lane = writeLane;
+        writeLane = null;
+        if (lane != null) lane.close();
+        switchOutbox(null);
+        closeConnection();
+    }
+
+    private static synchronized void closeConnection() {
         try {
+            if (insertStmt != null) insertStmt.close();
+            if (searchStmt != null) searchStmt.close();
+            if (searchServerStmt != null) searchServerStmt.close();
+            if (rtreeStmt != null) rtreeStmt.close();
             if (conn != null) conn.close();
         } catch (Exception ignored) {
         } finally {
+            insertStmt = null;
+            searchStmt = null;
+            searchServerStmt = null;
+            rtreeStmt = null;
+            searchable = false;
+            spatial = false;
             conn = null;
             currentPath = null;
         }
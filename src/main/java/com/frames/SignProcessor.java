@@ -0,0 +1,121 @@
+package com.frames;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Archives found signs and hands their messages to the network stage, off the client thread.
+ * <p>
+ * Signs need no encoding, so batches run in order on the {@link ScanPipeline} background thread. The archive is
+ * opened on the query thread; a batch that arrives first waits for it.
+ */
+public final class SignProcessor {
+    public static final class SignJob {
+        final long firstSeenMs;
+        final BlockPos pos;
+        final String front;
+        final String back;
+        final String dimension;
+        final String server;
+        final String discordMessage;
+
+        SignJob(long firstSeenMs, BlockPos pos, String front, String back,
+                String dimension, String server, String discordMessage) {
+            this.firstSeenMs = firstSeenMs;
+            this.pos = pos;
+            this.front = front;
+            this.back = back;
+            this.dimension = dimension;
+            this.server = server;
+            this.discordMessage = discordMessage;
+        }
+    }
+
+    private final ScanPipeline pipeline = ScanPipeline.shared();
+    private volatile JobCapture capture;
+
+    /** Records every submitted batch to {@code capture} (null stops recording). */
+    public void capture(JobCapture capture) {
+        this.capture = capture;
+    }
+
+    public void submit(List<SignJob> jobs, String url, Path dbPath) {
+        JobCapture c = capture;
+        if (c != null) c.signs(jobs);
+
+        pipeline.background(() -> process(jobs, url, dbPath));
+    }
+
+    private void process(List<SignJob> jobs, String url, Path dbPath) {
+        int stored = 0;
+
+        // Ensure DB open in worker thread too
+        try {
+            SignArchiveDb.init(dbPath);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+
+        List<SignArchiveDb.SignRow> rows = new ArrayList<>(jobs.size());
+        for (SignJob job : jobs) {
+            rows.add(new SignArchiveDb.SignRow(
+                job.firstSeenMs,
+                job.dimension,
+                job.server,
+                job.pos,
+                job.front,
+                job.back
+            ));
+        }
+
+        // persistence runs on the shared write-behind thread so a slow webhook never stalls DB writes
+        try {
+            for (SignArchiveDb.SignRow row : rows) {
+                if (SignArchiveDb.enqueueSign(row)) stored++;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (url == null || url.isBlank()) {
+            System.out.println("[SignScanner] Queued " + stored + " sign(s) for DB.");
+            return;
+        }
+
+        WebhookOutbox outbox = SignArchiveDb.outbox();
+        if (outbox != null) {
+            // delivered by the outbox drainer, which survives restarts and retries failures
+            int queued = 0;
+            try {
+                for (SignJob job : jobs) {
+                    if (outbox.enqueue(WebhookOutbox.Entry.embed(url, job.discordMessage))) queued++;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            System.out.println("[SignScanner] Queued " + stored + " sign(s) for DB and " + queued + " for Discord.");
+            return;
+        }
+
+        List<String> messages = new ArrayList<>(jobs.size());
+        for (SignJob job : jobs) messages.add(job.discordMessage);
+
+        // signs go out as embeds, up to 10 per message; the dispatcher paces the messages
+        for (List<String> batch : DiscordWebhookSender.batchEmbeds(messages)) {
+            WebhookDispatcher.get().sendEmbeds(url, batch).whenComplete((response, error) -> {
+                if (error != null) {
+                    error.printStackTrace();
+                } else if (DiscordWebhookSender.isSuccess(response)) {
+                    System.out.println("[SignScanner] Sent " + batch.size() + " sign(s) to Discord.");
+                } else if (response != null) {
+                    System.out.println("[SignScanner] Discord webhook returned HTTP " + response.statusCode());
+                }
+            });
+        }
+        System.out.println("[SignScanner] Queued " + stored + " sign(s) for DB.");
+    }
+}
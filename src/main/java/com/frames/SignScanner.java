@@ -2,6 +2,7 @@ package com.frames;
 
 import meteordevelopment.meteorclient.systems.modules.Module;
 import meteordevelopment.meteorclient.systems.modules.Categories;
+import meteordevelopment.meteorclient.events.world.ChunkDataEvent;
 import meteordevelopment.meteorclient.events.world.TickEvent;
 import meteordevelopment.orbit.EventHandler;
 
@@ -10,6 +11,8 @@ import meteordevelopment.meteorclient.settings.SettingGroup;
 import meteordevelopment.meteorclient.settings.StringSetting;
 import meteordevelopment.meteorclient.settings.IntSetting;
 import meteordevelopment.meteorclient.settings.BoolSetting;
+import meteordevelopment.meteorclient.settings.DoubleSetting;
+import meteordevelopment.meteorclient.settings.EnumSetting;
 
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.MinecraftClient;
@@ -20,27 +23,30 @@ import net.minecraft.block.entity.SignText;
 import net.minecraft.registry.tag.BlockTags;
 import net.minecraft.text.Text;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.WorldChunk;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class SignScanner extends Module {
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "SignScanner-Worker");
-        t.setDaemon(true);
-        return t;
-    });
+    private static final ScanMetrics.Histogram SCAN_TIME = ScanMetrics.get().timer("sign.scan");
+    private static final ScanMetrics.Counter BLOCK_ENTITIES_VISITED = ScanMetrics.get().counter("sign.block_entities_visited");
+    private static final ScanMetrics.Counter BLOCK_STATES_VISITED = ScanMetrics.get().counter("sign.block_states_visited");
+    private static final ScanMetrics.Counter DEDUPE_HITS = ScanMetrics.get().counter("sign.dedupe_hits");
+    private static final ScanMetrics.Counter DEDUPE_MISSES = ScanMetrics.get().counter("sign.dedupe_misses");
 
     private final MinecraftClient mc = MinecraftClient.getInstance();
     private final SettingGroup sgGeneral = settings.getDefaultGroup();
 
-    private final Set<String> scanned = new HashSet<>();
-    private int tickCounter = 0;
+    // hash of (position, text) for every sign already handled
+    private LongDedupeCache scanned;
+    private final AdaptiveScheduler scheduler = new AdaptiveScheduler();
+    private final SignProcessor processor = new SignProcessor();
+    private JobCapture capture;
+    // scan in progress, spread over ticks; null between scans
+    private Sweep sweep;
+    private boolean warmingUp = false;
 
     private final Setting<String> outputFolder = sgGeneral.add(new StringSetting.Builder()
         .name("output-folder")
@@ -76,16 +82,42 @@ public class SignScanner extends Module {
 
     private final Setting<Integer> scanIntervalTicks = sgGeneral.add(new IntSetting.Builder()
         .name("scan-interval-ticks")
-        .description("How often to scan (in ticks).")
+        .description("How often to scan (in ticks). With adaptive-interval this is the shortest interval.")
         .defaultValue(10)
         .min(1)
         .sliderMax(200)
         .build()
     );
 
+    private final Setting<Boolean> adaptiveInterval = sgGeneral.add(new BoolSetting.Builder()
+        .name("adaptive-interval")
+        .description("Scan less often while standing still and finding nothing, more often when new chunks load.")
+        .defaultValue(true)
+        .build()
+    );
+
+    private final Setting<Integer> maxIntervalTicks = sgGeneral.add(new IntSetting.Builder()
+        .name("max-interval-ticks")
+        .description("Longest interval adaptive-interval may back off to.")
+        .defaultValue(100)
+        .min(1)
+        .sliderMax(400)
+        .visible(adaptiveInterval::get)
+        .build()
+    );
+
+    private final Setting<Double> tickBudgetMs = sgGeneral.add(new DoubleSetting.Builder()
+        .name("tick-budget-ms")
+        .description("Client-thread time a scan may use per tick; larger scans are spread over several ticks.")
+        .defaultValue(0.5)
+        .min(0.05)
+        .sliderMax(5)
+        .build()
+    );
+
     private final Setting<Integer> maxSignsPerScan = sgGeneral.add(new IntSetting.Builder()
         .name("max-signs-per-scan")
-        .description("Max new signs to process per scan.")
+        .description("Max new signs to process per scan; a sweep that reaches it ends early.")
         .defaultValue(25)
         .min(1)
         .sliderMax(200)
@@ -106,6 +138,57 @@ public class SignScanner extends Module {
         .build()
     );
 
+    private final Setting<Integer> dedupeCapacity = sgGeneral.add(new IntSetting.Builder()
+        .name("dedupe-capacity")
+        .description("How many signs to remember; least recently seen ones are evicted first.")
+        .defaultValue(200_000)
+        .min(1_024)
+        .sliderMax(1_000_000)
+        .build()
+    );
+
+    private final Setting<Boolean> warmStart = sgGeneral.add(new BoolSetting.Builder()
+        .name("warm-start")
+        .description("On enable, preload this server's archived signs so they are never re-archived or re-sent.")
+        .defaultValue(true)
+        .build()
+    );
+
+    private final Setting<DiscoveryMode> discoveryMode = sgGeneral.add(new EnumSetting.Builder<DiscoveryMode>()
+        .name("discovery-mode")
+        .description("BlockEntities walks loaded chunks' block entities; VoxelSweep checks every block (slow fallback).")
+        .defaultValue(DiscoveryMode.BlockEntities)
+        .build()
+    );
+
+    private final Setting<Boolean> compareModes = sgGeneral.add(new BoolSetting.Builder()
+        .name("compare-modes")
+        .description("Run both discovery modes on each scan and log their cost (debug).")
+        .defaultValue(false)
+        .build()
+    );
+
+    private final Setting<Integer> metricsCsvSeconds = sgGeneral.add(new IntSetting.Builder()
+        .name("metrics-csv-seconds")
+        .description("Append scanner metrics (both scanners) to scan_metrics.csv in the output folder every N seconds. 0 = off. If map-scanner also dumps, the shorter interval wins.")
+        .defaultValue(0)
+        .min(0)
+        .sliderMax(600)
+        .build()
+    );
+
+    private final Setting<Boolean> captureJobs = sgGeneral.add(new BoolSetting.Builder()
+        .name("capture-jobs")
+        .description("Record found signs to captures/ in the output folder for offline replay. Applies on enable.")
+        .defaultValue(false)
+        .build()
+    );
+
+    public enum DiscoveryMode {
+        BlockEntities,
+        VoxelSweep
+    }
+
     public SignScanner() {
         super(
             Categories.Render,
@@ -115,29 +198,6 @@ public class SignScanner extends Module {
         );
     }
 
-    private static class SignJob {
-        final long firstSeenMs;
-        final BlockPos pos;
-        final String front;
-        final String back;
-        final String contentKey;
-        final String dimension;
-        final String server;
-        final String discordMessage;
-
-        SignJob(long firstSeenMs, BlockPos pos, String front, String back,
-                String contentKey, String dimension, String server, String discordMessage) {
-            this.firstSeenMs = firstSeenMs;
-            this.pos = pos;
-            this.front = front;
-            this.back = back;
-            this.contentKey = contentKey;
-            this.dimension = dimension;
-            this.server = server;
-            this.discordMessage = discordMessage;
-        }
-    }
-
     private Path getSignDbPath() {
         Path gameDir = FabricLoader.getInstance().getGameDir();
         String folder = outputFolder.get().trim().isEmpty() ? "mapframe_archive" : outputFolder.get().trim();
@@ -148,16 +208,18 @@ public class SignScanner extends Module {
     public void onActivate() {
         super.onActivate();
 
-        if (rescanOnEnable.get()) scanned.clear();
-
-        try {
-            Path dbPath = getSignDbPath();
-            SignArchiveDb.init(dbPath);
-            info("Sign DB ready: " + dbPath.toAbsolutePath());
-        } catch (Exception e) {
-            e.printStackTrace();
-            warning("Failed to init SignArchiveDb (see logs).");
+        if (scanned == null || scanned.capacity() != dedupeCapacity.get()) {
+            scanned = new LongDedupeCache(dedupeCapacity.get());
+        } else if (rescanOnEnable.get()) {
+            scanned.clear();
         }
+        scheduler.reset(scanIntervalTicks.get());
+        sweep = null;
+
+        ScanMetrics.get().scheduleCsv(this, getSignDbPath().resolveSibling("scan_metrics.csv"), metricsCsvSeconds.get());
+        openArchive(getSignDbPath(), warmStart.get() ? currentServer() : null);
+
+        if (captureJobs.get()) startCapture();
 
         if (webhookUrl.get().isBlank()) {
             warning("Webhook URL is empty. Signs will be scanned and archived but NOT sent.");
@@ -171,77 +233,152 @@ public class SignScanner extends Module {
     @Override
     public void onDeactivate() {
         super.onDeactivate();
-        // Optional: close DB when module disabled
-        SignArchiveDb.close();
+        ScanMetrics.get().scheduleCsv(this, null, 0);
+        if (capture != null) {
+            processor.capture(null);
+            capture.close();
+            capture = null;
+        }
+        // Optional: close DB when module disabled; in order with opens on the query thread, once queued batches are done
+        ScanPipeline pipeline = ScanPipeline.shared();
+        pipeline.query(() -> {
+            pipeline.background(() -> {}).join();
+            SignArchiveDb.close();
+        });
     }
 
-    @EventHandler
-    private void onTick(TickEvent.Post event) {
-        if (mc.world == null || mc.player == null) return;
-        if (++tickCounter % scanIntervalTicks.get() != 0) return;
-
-        int r = radius.get();
-        int rSq = r * r;
+    /**
+     * Opens the archive on the query thread, since migrating or indexing an old file can take a while, and
+     * holds scanning off until it is ready. {@code warmServer} non-null chains a warm start for that server.
+     */
+    private void openArchive(Path dbPath, String warmServer) {
+        warmingUp = true;
 
-        int v = verticalRange.get();
-        int yMin = mc.player.getBlockY() - v;
-        int yMax = mc.player.getBlockY() + v;
+        ScanPipeline.shared().query(() -> {
+            boolean opened = false;
+            try {
+                SignArchiveDb.init(dbPath);
+                opened = true;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
 
-        BlockPos playerPos = mc.player.getBlockPos();
-        BlockPos.Mutable pos = new BlockPos.Mutable();
+            boolean ready = opened;
+            mc.execute(() -> {
+                if (!isActive()) return;
+
+                if (!ready) {
+                    warning("Failed to init SignArchiveDb (see logs).");
+                } else {
+                    info("Sign DB ready: " + dbPath.toAbsolutePath());
+                    if (warmServer != null) {
+                        startWarmStart(warmServer);
+                        return;
+                    }
+                }
+                warmingUp = false;
+            });
+        });
+    }
 
-        List<SignJob> jobs = new ArrayList<>();
+    private void startCapture() {
+        try {
+            capture = JobCapture.openNew(getSignDbPath().getParent(), "signs");
+            processor.capture(capture);
+            info("Capturing signs to " + capture.file().toAbsolutePath());
+        } catch (Exception e) {
+            e.printStackTrace();
+            warning("Failed to open capture file.");
+        }
+    }
 
-        outer:
-        for (int dx = -r; dx <= r; dx++) {
-            for (int dz = -r; dz <= r; dz++) {
-                if (dx * dx + dz * dz > rSq) continue;
+    /**
+     * Loads archived sign keys on the query thread, then merges them into the cache on the client thread.
+     * Scanning is held off until the merge so already-archived signs never reach the DB or webhook path.
+     */
+    private void startWarmStart(String server) {
+        warmingUp = true;
+        int limit = scanned.capacity();
 
-                int x = playerPos.getX() + dx;
-                int z = playerPos.getZ() + dz;
+        ScanPipeline.shared().query(() -> {
+            long[] keys = new long[limit];
+            int[] count = new int[1];
 
-                for (int y = yMin; y <= yMax; y++) {
-                    pos.set(x, y, z);
+            try {
+                SignArchiveDb.forEachSignKey(server, limit, key -> keys[count[0]++] = key);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
 
-                    BlockState state = mc.world.getBlockState(pos);
-                    if (!state.isIn(BlockTags.SIGNS)) continue;
+            mc.execute(() -> {
+                int loaded = 0;
+                for (int i = 0; i < count[0]; i++) {
+                    if (scanned.add(keys[i])) loaded++;
+                }
+                warmingUp = false;
+                if (isActive()) info("Warm start: " + loaded + " archived sign(s) marked as known.");
+            });
+        });
+    }
 
-                    BlockEntity be = mc.world.getBlockEntity(pos);
-                    if (!(be instanceof SignBlockEntity sign)) continue;
+    private String currentServer() {
+        return (mc.getCurrentServerEntry() != null)
+            ? mc.getCurrentServerEntry().address
+            : "singleplayer";
+    }
 
-                    String front = signTextToPlain(sign.getFrontText());
-                    String back = includeBack.get() ? signTextToPlain(sign.getBackText()) : "";
+    @EventHandler
+    private void onChunkData(ChunkDataEvent event) {
+        scheduler.onChunkLoaded();
+    }
 
-                    if (front.isBlank() && back.isBlank()) continue;
+    @EventHandler
+    private void onTick(TickEvent.Post event) {
+        if (mc.world == null || mc.player == null) return;
+        if (warmingUp) return;
 
-                    String key = pos.asLong() + "|" + front + "|" + back;
-                    if (!scanned.add(key)) continue;
+        int minTicks = scanIntervalTicks.get();
+        int maxTicks = adaptiveInterval.get() ? maxIntervalTicks.get() : minTicks;
 
-                    BlockPos immutablePos = pos.toImmutable();
+        long start = System.nanoTime();
+        long budget = (long) (tickBudgetMs.get() * 1_000_000L);
+        List<SignBlockEntity> candidates;
 
-                    String dim = (mc.world.getRegistryKey() != null)
-                        ? mc.world.getRegistryKey().getValue().toString()
-                        : null;
+        if (compareModes.get()) {
+            // debug: both full passes in one tick so their costs compare fairly
+            sweep = null;
+            if (!scheduler.tick(minTicks, maxTicks)) return;
 
-                    String srv = (mc.getCurrentServerEntry() != null)
-                        ? mc.getCurrentServerEntry().address
-                        : "singleplayer";
+            int v = verticalRange.get();
+            candidates = compareDiscovery(mc.player.getBlockPos(), radius.get(),
+                mc.player.getBlockY() - v, mc.player.getBlockY() + v);
+        } else {
+            if (sweep == null) {
+                if (!scheduler.tick(minTicks, maxTicks)) return;
+                sweep = new Sweep(mc.player.getBlockPos(), radius.get(), verticalRange.get(),
+                    discoveryMode.get() == DiscoveryMode.VoxelSweep);
+            }
 
-                    String msg = formatDiscordMessage(immutablePos, front, back);
+            candidates = new ArrayList<>();
+            sweep.advance(start + budget, candidates);
+        }
 
-                    jobs.add(new SignJob(
-                        System.currentTimeMillis(),
-                        immutablePos,
-                        front,
-                        back,
-                        key,
-                        dim,
-                        srv,
-                        msg
-                    ));
+        List<SignProcessor.SignJob> jobs = toJobs(candidates);
+        SCAN_TIME.recordSince(start);
 
-                    if (jobs.size() >= maxSignsPerScan.get()) break outer;
-                }
+        if (sweep == null) {
+            scheduler.scanned(mc.player.getX(), mc.player.getY(), mc.player.getZ(), jobs.size(),
+                System.nanoTime() - start, budget, minTicks, maxTicks);
+        } else {
+            sweep.found += jobs.size();
+            sweep.nanos += System.nanoTime() - start;
+            sweep.ticks++;
+
+            if (sweep.isDone() || sweep.found >= maxSignsPerScan.get()) {
+                // the sweep already kept each tick within budget; report its average per-tick cost
+                scheduler.scanned(mc.player.getX(), mc.player.getY(), mc.player.getZ(), sweep.found,
+                    sweep.nanos / sweep.ticks, budget, minTicks, maxTicks);
+                sweep = null;
             }
         }
 
@@ -255,48 +392,221 @@ public class SignScanner extends Module {
             info("Found " + jobs.size() + " new sign(s); archiving + sending in background.");
         }
 
-        EXECUTOR.submit(() -> processJobs(jobs, url));
+        processor.submit(jobs, url, getSignDbPath());
     }
 
-    private void processJobs(List<SignJob> jobs, String url) {
-        int stored = 0;
-        int sent = 0;
+    private List<SignProcessor.SignJob> toJobs(List<SignBlockEntity> candidates) {
+        String dim = (mc.world.getRegistryKey() != null)
+            ? mc.world.getRegistryKey().getValue().toString()
+            : null;
 
-        // Ensure DB open in worker thread too
-        try {
-            SignArchiveDb.init(getSignDbPath());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return;
+        String srv = currentServer();
+        int limit = maxSignsPerScan.get() - (sweep != null ? sweep.found : 0);
+
+        List<SignProcessor.SignJob> jobs = new ArrayList<>();
+
+        for (SignBlockEntity sign : candidates) {
+            if (jobs.size() >= limit) break;
+
+            String front = signTextToPlain(sign.getFrontText());
+            String back = includeBack.get() ? signTextToPlain(sign.getBackText()) : "";
+
+            if (front.isBlank() && back.isBlank()) continue;
+
+            BlockPos pos = sign.getPos();
+            if (!scanned.add(SignArchiveDb.dedupeKey(pos.asLong(), front, back))) {
+                DEDUPE_HITS.increment();
+                continue;
+            }
+            DEDUPE_MISSES.increment();
+
+            String msg = formatDiscordMessage(pos, front, back);
+
+            jobs.add(new SignProcessor.SignJob(
+                System.currentTimeMillis(),
+                pos,
+                front,
+                back,
+                dim,
+                srv,
+                msg
+            ));
         }
+        return jobs;
+    }
 
-        for (SignJob job : jobs) {
-            try {
-                SignArchiveDb.insertSign(
-                    job.firstSeenMs,
-                    job.dimension,
-                    job.server,
-                    job.pos,
-                    job.front,
-                    job.back,
-                    job.contentKey
-                );
-                stored++;
-            } catch (Exception ex) {
-                ex.printStackTrace();
+    /**
+     * Resumable pass over the scan area, one chunk (BlockEntities) or one column (VoxelSweep) at a time.
+     * The area is fixed when the sweep starts; each tick continues where the previous one stopped.
+     */
+    private final class Sweep {
+        final BlockPos center;
+        final int r;
+        final int yMin;
+        final int yMax;
+        final boolean voxels;
+        final int minA;
+        final int minB;
+        final int width;
+        final int cells;
+        int next;
+
+        int found;
+        long nanos;
+        int ticks;
+
+        Sweep(BlockPos center, int r, int verticalRange, boolean voxels) {
+            this.center = center;
+            this.r = r;
+            this.yMin = center.getY() - verticalRange;
+            this.yMax = center.getY() + verticalRange;
+            this.voxels = voxels;
+
+            if (voxels) {
+                minA = center.getX() - r;
+                minB = center.getZ() - r;
+                width = 2 * r + 1;
+                cells = width * width;
+            } else {
+                minA = (center.getX() - r) >> 4;
+                minB = (center.getZ() - r) >> 4;
+                width = ((center.getX() + r) >> 4) - minA + 1;
+                cells = width * (((center.getZ() + r) >> 4) - minB + 1);
             }
+        }
 
-            if (url != null && !url.isBlank()) {
-                try {
-                    DiscordWebhookSender.sendMessage(url, job.discordMessage);
-                    sent++;
-                } catch (Exception ex) {
-                    ex.printStackTrace();
+        /**
+         * Visits cells until {@code deadline} (System.nanoTime) passes; always makes progress by at least one cell.
+         */
+        void advance(long deadline, List<SignBlockEntity> out) {
+            while (next < cells) {
+                int a = minA + next % width;
+                int b = minB + next / width;
+                next++;
+
+                if (voxels) {
+                    BLOCK_STATES_VISITED.add(collectColumnSigns(center, r, yMin, yMax, a, b, out));
+                } else {
+                    BLOCK_ENTITIES_VISITED.add(collectChunkSigns(center, r, yMin, yMax, a, b, out));
                 }
+
+                if (System.nanoTime() > deadline) return;
+            }
+        }
+
+        boolean isDone() {
+            return next >= cells;
+        }
+    }
+
+    /**
+     * Collects signs from the block entity maps of every loaded chunk overlapping the scan cylinder.
+     * Cost scales with the number of block entities nearby rather than the scanned volume.
+     */
+    private List<SignBlockEntity> findSignsByBlockEntities(BlockPos center, int r, int yMin, int yMax, int[] visited) {
+        List<SignBlockEntity> out = new ArrayList<>();
+        int count = 0;
+
+        for (int cx = (center.getX() - r) >> 4; cx <= (center.getX() + r) >> 4; cx++) {
+            for (int cz = (center.getZ() - r) >> 4; cz <= (center.getZ() + r) >> 4; cz++) {
+                count += collectChunkSigns(center, r, yMin, yMax, cx, cz, out);
+            }
+        }
+
+        if (visited != null) visited[0] = count;
+        return out;
+    }
+
+    /**
+     * Adds the signs of chunk (cx, cz) that lie inside the scan cylinder. Returns the number of block entities checked.
+     */
+    private int collectChunkSigns(BlockPos center, int r, int yMin, int yMax, int cx, int cz, List<SignBlockEntity> out) {
+        int rSq = r * r;
+        int cx0 = center.getX();
+        int cz0 = center.getZ();
+
+        // skip chunks whose nearest column is outside the radius
+        int nx = Math.max(cx << 4, Math.min(cx0, (cx << 4) + 15)) - cx0;
+        int nz = Math.max(cz << 4, Math.min(cz0, (cz << 4) + 15)) - cz0;
+        if (nx * nx + nz * nz > rSq) return 0;
+
+        WorldChunk chunk = mc.world.getChunkManager().getWorldChunk(cx, cz);
+        if (chunk == null) return 0;
+
+        int count = 0;
+        for (BlockEntity be : chunk.getBlockEntities().values()) {
+            count++;
+            if (!(be instanceof SignBlockEntity sign)) continue;
+
+            BlockPos p = be.getPos();
+            if (p.getY() < yMin || p.getY() > yMax) continue;
+
+            int dx = p.getX() - cx0;
+            int dz = p.getZ() - cz0;
+            if (dx * dx + dz * dz > rSq) continue;
+
+            out.add(sign);
+        }
+        return count;
+    }
+
+    /**
+     * Fallback discovery: checks the block state of every position in the scan cylinder.
+     */
+    private List<SignBlockEntity> findSignsByVoxelSweep(BlockPos center, int r, int yMin, int yMax, int[] visited) {
+        List<SignBlockEntity> out = new ArrayList<>();
+        int count = 0;
+
+        for (int x = center.getX() - r; x <= center.getX() + r; x++) {
+            for (int z = center.getZ() - r; z <= center.getZ() + r; z++) {
+                count += collectColumnSigns(center, r, yMin, yMax, x, z, out);
             }
         }
 
-        System.out.println("[SignScanner] Stored " + stored + " sign(s); sent " + sent + " to Discord.");
+        if (visited != null) visited[0] = count;
+        return out;
+    }
+
+    /**
+     * Adds the signs in column (x, z) if it lies inside the scan cylinder. Returns the number of block states checked.
+     */
+    private int collectColumnSigns(BlockPos center, int r, int yMin, int yMax, int x, int z, List<SignBlockEntity> out) {
+        int dx = x - center.getX();
+        int dz = z - center.getZ();
+        if (dx * dx + dz * dz > r * r) return 0;
+
+        int count = 0;
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int y = yMin; y <= yMax; y++) {
+            pos.set(x, y, z);
+            count++;
+
+            BlockState state = mc.world.getBlockState(pos);
+            if (!state.isIn(BlockTags.SIGNS)) continue;
+
+            BlockEntity be = mc.world.getBlockEntity(pos);
+            if (be instanceof SignBlockEntity sign) out.add(sign);
+        }
+        return count;
+    }
+
+    private List<SignBlockEntity> compareDiscovery(BlockPos center, int r, int yMin, int yMax) {
+        int[] beVisited = new int[1];
+        int[] voxelVisited = new int[1];
+
+        long t0 = System.nanoTime();
+        List<SignBlockEntity> byBlockEntities = findSignsByBlockEntities(center, r, yMin, yMax, beVisited);
+        long t1 = System.nanoTime();
+        List<SignBlockEntity> byVoxels = findSignsByVoxelSweep(center, r, yMin, yMax, voxelVisited);
+        long t2 = System.nanoTime();
+
+        System.out.printf(
+            "[SignScanner] discovery: block-entities %.3f ms (%d block entities, %d signs) vs voxel-sweep %.3f ms (%d block states, %d signs)%n",
+            (t1 - t0) / 1_000_000.0, beVisited[0], byBlockEntities.size(),
+            (t2 - t1) / 1_000_000.0, voxelVisited[0], byVoxels.size()
+        );
+
+        return discoveryMode.get() == DiscoveryMode.VoxelSweep ? byVoxels : byBlockEntities;
     }
 
     private String formatDiscordMessage(BlockPos pos, String front, String back) {
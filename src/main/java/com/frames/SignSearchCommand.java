@@ -0,0 +1,85 @@
+package com.frames;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import meteordevelopment.meteorclient.commands.Command;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.command.CommandSource;
+
+import java.util.List;
+
+/**
+ * {@code .sign-search <words>} / {@code .sign-search page <n> <words>}: ranked full-text search over the sign archive.
+ * The query runs on the pipeline's query thread; results are printed when it completes.
+ */
+public class SignSearchCommand extends Command {
+    private static final int PAGE_SIZE = 8;
+    private static final int MAX_TEXT = 80;
+
+    public SignSearchCommand() {
+        super("sign-search", "Searches archived sign text. Every word must match (as a word prefix).");
+    }
+
+    @Override
+    public void build(LiteralArgumentBuilder<CommandSource> builder) {
+        builder.then(literal("page")
+            .then(argument("page", IntegerArgumentType.integer(1))
+                .then(argument("query", StringArgumentType.greedyString()).executes(context -> {
+                    search(StringArgumentType.getString(context, "query"), IntegerArgumentType.getInteger(context, "page"));
+                    return SINGLE_SUCCESS;
+                }))));
+
+        builder.then(argument("query", StringArgumentType.greedyString()).executes(context -> {
+            search(StringArgumentType.getString(context, "query"), 1);
+            return SINGLE_SUCCESS;
+        }));
+    }
+
+    private void search(String query, int page) {
+        if (!SignArchiveDb.isSearchable()) {
+            error("Sign archive is not open (enable sign-scanner) or this SQLite build has no FTS5.");
+            return;
+        }
+
+        MinecraftClient mc = MinecraftClient.getInstance();
+        long start = System.nanoTime();
+
+        SignArchiveDb.searchAsync(query, null, page - 1, PAGE_SIZE).whenComplete((hits, failure) -> mc.execute(() -> {
+            if (failure != null) {
+                failure.printStackTrace();
+                error(escape("Search failed: " + failure.getMessage()));
+                return;
+            }
+            print(query, page, hits, (System.nanoTime() - start) / 1_000_000.0);
+        }));
+    }
+
+    private void print(String query, int page, List<SignArchiveDb.SignHit> hits, double ms) {
+        if (hits.isEmpty()) {
+            info(escape(page == 1 ? "No signs match \"" + query + "\"." : "No more matches (page " + page + ")."));
+            return;
+        }
+
+        info(escape(String.format("Signs matching \"%s\", page %d (%.1f ms):", query, page, ms)));
+        for (SignArchiveDb.SignHit hit : hits) {
+            String text = hit.back.isBlank() ? hit.front : hit.front + " | " + hit.back;
+            text = text.replace('\n', ' ').trim();
+            if (text.length() > MAX_TEXT) text = text.substring(0, MAX_TEXT - 3) + "...";
+
+            info(escape("(" + hit.x + ", " + hit.y + ", " + hit.z + ") " + shortDimension(hit.dimension) + ": " + text));
+        }
+        if (hits.size() == PAGE_SIZE) info(escape("More: .sign-search page " + (page + 1) + " " + query));
+    }
+
+    // chat messages are format strings; archived text and queries may contain '%'
+    private static String escape(String s) {
+        return s.replace("%", "%%");
+    }
+
+    private static String shortDimension(String dimension) {
+        if (dimension == null) return "?";
+        int colon = dimension.indexOf(':');
+        return colon >= 0 ? dimension.substring(colon + 1) : dimension;
+    }
+}
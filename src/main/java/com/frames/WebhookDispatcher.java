@@ -0,0 +1,232 @@
+package com.frames;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Paces webhook sends per URL using Discord's rate-limit headers.
+ * <p>
+ * Each webhook URL gets a token bucket refilled from {@code X-RateLimit-Limit}/{@code X-RateLimit-Remaining}/
+ * {@code X-RateLimit-Reset-After}. Requests are started only while the bucket has tokens, 429s are re-queued after
+ * {@code Retry-After} for as long as it takes, and 5xx/network failures are retried with jittered exponential backoff
+ * up to {@link #MAX_FAILURES} times. All bucket state is confined to the dispatcher thread.
+ */
+public final class WebhookDispatcher {
+    private static final WebhookDispatcher INSTANCE = new WebhookDispatcher();
+
+    // 429s are not failures and never count towards this
+    private static final int MAX_FAILURES = 6;
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private static final long RESET_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long WINDOW_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MapScanner-Webhook");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ScanMetrics.Histogram LATENCY = ScanMetrics.get().timer("webhook.latency");
+    private static final ScanMetrics.Counter ERRORS = ScanMetrics.get().counter("webhook.errors");
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private WebhookDispatcher() {}
+
+    public static WebhookDispatcher get() {
+        return INSTANCE;
+    }
+
+    public CompletableFuture<HttpResponse<String>> sendPngs(String url, List<DiscordWebhookSender.Attachment> attachments) {
+        return submit(url, () -> DiscordWebhookSender.sendPngsAsync(url, attachments));
+    }
+
+    public CompletableFuture<HttpResponse<String>> sendEmbeds(String url, List<String> descriptions) {
+        return submit(url, () -> DiscordWebhookSender.sendEmbedsAsync(url, descriptions));
+    }
+
+    /**
+     * Queues a send against {@code url}'s bucket. {@code send} may be invoked more than once when retrying.
+     * The future completes with the final response (possibly 5xx once retries are exhausted).
+     */
+    public CompletableFuture<HttpResponse<String>> submit(String url,
+                                                          Supplier<CompletableFuture<HttpResponse<String>>> send) {
+        if (url == null || url.isBlank()) return CompletableFuture.completedFuture(null);
+
+        Task task = new Task(send);
+        Bucket bucket = buckets.computeIfAbsent(url, u -> new Bucket());
+        scheduler.execute(() -> {
+            bucket.queue.addLast(task);
+            pump(bucket);
+        });
+        return task.result;
+    }
+
+    /** Sends queued for all webhooks that have not completed yet (queued, in flight or waiting to retry). */
+    public int pending() {
+        int n = 0;
+        for (Bucket b : buckets.values()) n += b.outstanding;
+        return n;
+    }
+
+    private static final class Task {
+        final Supplier<CompletableFuture<HttpResponse<String>>> send;
+        final CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        int failures;
+
+        Task(Supplier<CompletableFuture<HttpResponse<String>>> send) {
+            this.send = send;
+        }
+    }
+
+    private static final class Bucket {
+        final ArrayDeque<Task> queue = new ArrayDeque<>();
+        // until Discord tells us the limit, probe with one request at a time
+        int limit = 1;
+        int remaining = 1;
+        long resetAtNanos;
+        long blockedUntilNanos;
+        int inFlight;
+        boolean wakeScheduled;
+        volatile int outstanding;
+    }
+
+    private void pump(Bucket b) {
+        long now = System.nanoTime();
+
+        if (b.remaining <= 0 && b.inFlight == 0 && now >= b.resetAtNanos) {
+            b.remaining = b.limit;
+        }
+
+        while (!b.queue.isEmpty() && b.remaining > 0 && now >= b.blockedUntilNanos) {
+            Task task = b.queue.pollFirst();
+            b.remaining--;
+            b.inFlight++;
+            start(b, task);
+        }
+
+        b.outstanding = b.queue.size() + b.inFlight;
+
+        // nothing in flight will trigger the next pump, so wake up when the window opens
+        if (!b.queue.isEmpty() && b.inFlight == 0 && !b.wakeScheduled) {
+            long wakeAt = Math.max(b.blockedUntilNanos, b.remaining > 0 ? now : b.resetAtNanos);
+            b.wakeScheduled = true;
+            scheduler.schedule(() -> {
+                b.wakeScheduled = false;
+                pump(b);
+            }, Math.max(0, wakeAt - now), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void start(Bucket b, Task task) {
+        CompletableFuture<HttpResponse<String>> call;
+        long started = System.nanoTime();
+        try {
+            call = task.send.get();
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((response, error) -> {
+            if (response != null) {
+                LATENCY.recordSince(started);
+                ScanMetrics.get().counter("webhook.status." + response.statusCode()).increment();
+            } else if (error != null) {
+                ERRORS.increment();
+            }
+            scheduler.execute(() -> onComplete(b, task, response, error));
+        });
+    }
+
+    private void onComplete(Bucket b, Task task, HttpResponse<String> response, Throwable error) {
+        b.inFlight--;
+        long now = System.nanoTime();
+
+        if (response == null && error == null) {
+            // nothing was sent (no webhook configured)
+            task.result.complete(null);
+        } else if (error != null) {
+            retryOrFail(b, task, null, error);
+        } else {
+            updateLimits(b, response.headers(), now);
+
+            int code = response.statusCode();
+            if (code == 429) {
+                double retryAfter = header(response.headers(), "Retry-After", 1.0);
+                b.blockedUntilNanos = Math.max(b.blockedUntilNanos, now + secondsToNanos(retryAfter));
+                b.remaining = 0;
+                b.queue.addFirst(task);
+            } else if (code >= 500) {
+                retryOrFail(b, task, response, null);
+            } else {
+                task.result.complete(response);
+            }
+        }
+
+        pump(b);
+    }
+
+    private void retryOrFail(Bucket b, Task task, HttpResponse<String> response, Throwable error) {
+        if (++task.failures >= MAX_FAILURES) {
+            if (error != null) task.result.completeExceptionally(error);
+            else task.result.complete(response);
+            return;
+        }
+
+        long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (task.failures - 1));
+        long jittered = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        b.outstanding = b.queue.size() + b.inFlight + 1;
+        scheduler.schedule(() -> {
+            b.queue.addFirst(task);
+            pump(b);
+        }, jittered, TimeUnit.MILLISECONDS);
+    }
+
+    private static void updateLimits(Bucket b, HttpHeaders headers, long now) {
+        double limit = header(headers, "X-RateLimit-Limit", -1);
+        double remaining = header(headers, "X-RateLimit-Remaining", -1);
+        double resetAfter = header(headers, "X-RateLimit-Reset-After", -1);
+
+        if (limit > 0) b.limit = (int) limit;
+        if (remaining < 0) return;
+
+        // the server's count does not include requests still in flight
+        int left = Math.max(0, (int) remaining - b.inFlight);
+        long resetAt = resetAfter >= 0 ? now + secondsToNanos(resetAfter) + RESET_MARGIN_NANOS : b.resetAtNanos;
+
+        if (resetAt > b.resetAtNanos + WINDOW_SLACK_NANOS) {
+            // first response from a new window
+            b.resetAtNanos = resetAt;
+            b.remaining = left;
+        } else {
+            // responses can arrive out of order; never let a stale count raise the budget
+            b.remaining = Math.min(b.remaining, left);
+        }
+    }
+
+    private static double header(HttpHeaders headers, String name, double fallback) {
+        return headers.firstValue(name).map(v -> {
+            try {
+                return Double.parseDouble(v.trim());
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }).orElse(fallback);
+    }
+
+    private static long secondsToNanos(double seconds) {
+        return (long) (seconds * 1_000_000_000L);
+    }
+}
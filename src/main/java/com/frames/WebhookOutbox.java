@@ -0,0 +1,388 @@
+package com.frames;
+
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable delivery queue for webhook sends, stored as an {@code outbox} table inside an archive database.
+ * <p>
+ * Scanners only enqueue rows (through the shared write-behind stage); a background drainer delivers due rows via
+ * {@link WebhookDispatcher}, deletes them once Discord accepts them and reschedules failures with backoff capped at
+ * {@link #MAX_RETRY_MS}. Rate limits, 5xx and network errors are retried indefinitely; only a 4xx rejection other than
+ * 429 marks a row failed. Rows that were in flight when the client stopped are still pending on the next start, so
+ * delivery is at-least-once.
+ */
+public final class WebhookOutbox {
+    public static final String KIND_FILE = "file";
+    public static final String KIND_EMBED = "embed";
+
+    private static final long BASE_RETRY_MS = 5_000;
+    private static final long MAX_RETRY_MS = 60 * 60_000;
+    private static final int DRAIN_BATCH = 50;
+    private static final long DRAIN_INTERVAL_MS = 1_000;
+    // bounds how far ahead of a slow webhook the drainer reads
+    private static final int MAX_IN_FLIGHT = 4 * DRAIN_BATCH;
+
+    private static final Set<WebhookOutbox> OPEN = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService DRAINER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MapScanner-Outbox");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        DRAINER.scheduleWithFixedDelay(WebhookOutbox::drainAll, DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private final String name;
+    private final Connection conn;
+    private PreparedStatement insertStmt;
+    private boolean closed;
+    private final WriteBehindQueue.Lane<Entry> writeLane;
+    // rows handed to the dispatcher and not yet recorded; touched on the drainer thread only
+    private final Set<Long> inFlight = new HashSet<>();
+
+    /**
+     * Opens (and creates if needed) the outbox table in {@code dbPath} on a connection of its own, so draining never
+     * contends with the archive's statements.
+     */
+    public WebhookOutbox(Path dbPath, String name) throws SQLException {
+        this.name = name;
+        try {
+            Files.createDirectories(dbPath.getParent());
+        } catch (Exception e) {
+            throw new SQLException("Cannot create " + dbPath.getParent(), e);
+        }
+
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath.toAbsolutePath());
+        try (Statement st = conn.createStatement()) {
+            conn.setAutoCommit(true);
+
+            st.execute("PRAGMA journal_mode=WAL;");
+            st.execute("PRAGMA synchronous=NORMAL;");
+            st.execute("PRAGMA busy_timeout=5000;");
+
+            st.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS outbox (
+                  id           INTEGER PRIMARY KEY AUTOINCREMENT,
+                  webhook_url  TEXT NOT NULL,
+                  kind         TEXT NOT NULL,                    -- 'file' or 'embed'
+                  file_name    TEXT,
+                  body         TEXT,                             -- caption or embed description
+                  data         BLOB,                             -- file bytes
+                  status       TEXT NOT NULL DEFAULT 'pending',  -- 'pending' or 'failed'
+                  attempts     INTEGER NOT NULL DEFAULT 0,
+                  next_attempt INTEGER NOT NULL,
+                  created      INTEGER NOT NULL,
+                  last_error   TEXT
+                );
+            """);
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_outbox_due ON outbox(status, next_attempt);");
+        } catch (SQLException e) {
+            closeConnection();
+            throw e;
+        }
+
+        writeLane = WriteBehindQueue.shared().lane(name + "-outbox", this::insert);
+        OPEN.add(this);
+    }
+
+    /** One pending delivery. */
+    public static final class Entry {
+        final String webhookUrl;
+        final String kind;
+        final String fileName;
+        final String body;
+        final byte[] data;
+
+        private Entry(String webhookUrl, String kind, String fileName, String body, byte[] data) {
+            this.webhookUrl = webhookUrl;
+            this.kind = kind;
+            this.fileName = fileName;
+            this.body = body;
+            this.data = data;
+        }
+
+        public static Entry file(String webhookUrl, String fileName, byte[] data, String caption) {
+            return new Entry(webhookUrl, KIND_FILE, fileName, caption, data);
+        }
+
+        public static Entry embed(String webhookUrl, String description) {
+            return new Entry(webhookUrl, KIND_EMBED, null, description, null);
+        }
+    }
+
+    /**
+     * Records a delivery. The row reaches disk with the next write-behind commit; blocks only when that queue is full.
+     * Returns false if the outbox was closed meanwhile.
+     */
+    public boolean enqueue(Entry entry) throws InterruptedException {
+        // every entry is its own delivery, so nothing is coalesced
+        return writeLane.submit(entry, entry);
+    }
+
+    private synchronized void insert(List<Entry> entries) throws SQLException {
+        if (closed || entries.isEmpty()) return;
+
+        if (insertStmt == null) {
+            insertStmt = conn.prepareStatement("""
+                INSERT INTO outbox(webhook_url, kind, file_name, body, data, next_attempt, created)
+                VALUES(?, ?, ?, ?, ?, ?, ?)
+            """);
+        }
+
+        long now = System.currentTimeMillis();
+        conn.setAutoCommit(false);
+        try {
+            for (Entry e : entries) {
+                insertStmt.setString(1, e.webhookUrl);
+                insertStmt.setString(2, e.kind);
+                insertStmt.setString(3, e.fileName);
+                insertStmt.setString(4, e.body);
+                insertStmt.setBytes(5, e.data);
+                insertStmt.setLong(6, now);
+                insertStmt.setLong(7, now);
+                insertStmt.addBatch();
+            }
+            insertStmt.executeBatch();
+            conn.commit();
+        } catch (SQLException ex) {
+            insertStmt.clearBatch();
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        DRAINER.execute(this::drain);
+    }
+
+    public synchronized int pendingCount() throws SQLException {
+        if (closed) return 0;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM outbox WHERE status = 'pending';")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static final class Due {
+        final long id;
+        final int attempts;
+        final Entry entry;
+
+        Due(long id, int attempts, Entry entry) {
+            this.id = id;
+            this.attempts = attempts;
+            this.entry = entry;
+        }
+    }
+
+    private static void drainAll() {
+        for (WebhookOutbox outbox : OPEN) outbox.drain();
+    }
+
+    /**
+     * Hands one page of due rows to the dispatcher without waiting for them. Each send is recorded on the drainer
+     * thread as soon as it completes, so a slow or rate-limited webhook only holds back its own rows. Runs on the
+     * drainer thread only; the connection lock is not held while waiting on the network.
+     */
+    private void drain() {
+        if (inFlight.size() >= MAX_IN_FLIGHT) return;
+
+        try {
+            List<Due> due = loadDue();
+            if (due.isEmpty()) return;
+
+            for (Due d : due) inFlight.add(d.id);
+            for (Send g : sendAll(due)) {
+                g.response.whenCompleteAsync((response, error) -> completed(g, error == null ? response : null), DRAINER);
+            }
+        } catch (Exception e) {
+            System.out.println("[Outbox] " + name + " drain failed.");
+            e.printStackTrace();
+        }
+    }
+
+    private void completed(Send g, HttpResponse<String> response) {
+        List<Long> delivered = new ArrayList<>();
+        List<Due> retry = new ArrayList<>();
+        List<Due> rejected = new ArrayList<>();
+
+        if (DiscordWebhookSender.isSuccess(response)) {
+            for (Due d : g.rows) delivered.add(d.id);
+        } else if (response != null && response.statusCode() >= 400 && response.statusCode() < 500
+            && response.statusCode() != 429) {
+            // the webhook is gone or refuses the payload; retrying will not help
+            rejected.addAll(g.rows);
+        } else {
+            retry.addAll(g.rows);
+        }
+
+        try {
+            record(delivered, retry, rejected);
+        } catch (Exception e) {
+            System.out.println("[Outbox] " + name + " failed to record a delivery.");
+            e.printStackTrace();
+        } finally {
+            for (Due d : g.rows) inFlight.remove(d.id);
+        }
+
+        // keep a backlog moving without waiting for the next tick
+        if (!delivered.isEmpty()) drain();
+    }
+
+    private synchronized List<Due> loadDue() throws SQLException {
+        List<Due> due = new ArrayList<>();
+        if (closed) return due;
+
+        // rows still in flight come back from the query too; read past them
+        int limit = DRAIN_BATCH + inFlight.size();
+
+        try (PreparedStatement ps = conn.prepareStatement("""
+            SELECT id, attempts, webhook_url, kind, file_name, body, data
+            FROM outbox
+            WHERE status = 'pending' AND next_attempt <= ?
+            ORDER BY id
+            LIMIT ?
+        """)) {
+            ps.setLong(1, System.currentTimeMillis());
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && due.size() < DRAIN_BATCH) {
+                    if (inFlight.contains(rs.getLong(1))) continue;
+                    Entry entry = new Entry(rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getBytes(7));
+                    due.add(new Due(rs.getLong(1), rs.getInt(2), entry));
+                }
+            }
+        }
+        return due;
+    }
+
+    private static final class Send {
+        final List<Due> rows;
+        final CompletableFuture<HttpResponse<String>> response;
+
+        Send(List<Due> rows, CompletableFuture<HttpResponse<String>> response) {
+            this.rows = rows;
+            this.response = response;
+        }
+    }
+
+    /**
+     * Packs consecutive rows for the same webhook and kind into as few messages as Discord allows.
+     */
+    private static List<Send> sendAll(List<Due> due) {
+        List<Send> groups = new ArrayList<>();
+
+        int start = 0;
+        while (start < due.size()) {
+            Entry first = due.get(start).entry;
+            int end = start + 1;
+            while (end < due.size()
+                && due.get(end).entry.webhookUrl.equals(first.webhookUrl)
+                && due.get(end).entry.kind.equals(first.kind)) {
+                end++;
+            }
+            List<Due> run = due.subList(start, end);
+
+            if (KIND_FILE.equals(first.kind)) {
+                List<DiscordWebhookSender.Attachment> attachments = new ArrayList<>(run.size());
+                for (Due d : run) {
+                    attachments.add(new DiscordWebhookSender.Attachment(d.entry.fileName, d.entry.data, d.entry.body));
+                }
+                int offset = 0;
+                for (List<DiscordWebhookSender.Attachment> batch : DiscordWebhookSender.batchAttachments(attachments)) {
+                    List<Due> rows = run.subList(offset, offset + batch.size());
+                    groups.add(new Send(rows, WebhookDispatcher.get().sendPngs(first.webhookUrl, batch)));
+                    offset += batch.size();
+                }
+            } else {
+                List<String> descriptions = new ArrayList<>(run.size());
+                for (Due d : run) descriptions.add(d.entry.body);
+                int offset = 0;
+                for (List<String> batch : DiscordWebhookSender.batchEmbeds(descriptions)) {
+                    List<Due> rows = run.subList(offset, offset + batch.size());
+                    groups.add(new Send(rows, WebhookDispatcher.get().sendEmbeds(first.webhookUrl, batch)));
+                    offset += batch.size();
+                }
+            }
+            start = end;
+        }
+        return groups;
+    }
+
+    private synchronized void record(List<Long> delivered, List<Due> retry, List<Due> rejected) throws SQLException {
+        // rows left pending here are simply sent again after a restart
+        if (closed) return;
+
+        long now = System.currentTimeMillis();
+        conn.setAutoCommit(false);
+        try (PreparedStatement del = conn.prepareStatement("DELETE FROM outbox WHERE id = ?");
+             PreparedStatement upd = conn.prepareStatement(
+                 "UPDATE outbox SET status = ?, attempts = ?, next_attempt = ?, last_error = ? WHERE id = ?")) {
+            for (long id : delivered) {
+                del.setLong(1, id);
+                del.addBatch();
+            }
+            del.executeBatch();
+
+            for (Due d : retry) {
+                // transient: keep retrying at the capped interval until the webhook takes it
+                int attempts = d.attempts + 1;
+                long delay = Math.min(MAX_RETRY_MS, BASE_RETRY_MS << Math.min(attempts - 1, 20));
+                upd.setString(1, "pending");
+                upd.setInt(2, attempts);
+                upd.setLong(3, now + delay);
+                upd.setString(4, "delivery failed");
+                upd.setLong(5, d.id);
+                upd.addBatch();
+            }
+            for (Due d : rejected) {
+                upd.setString(1, "failed");
+                upd.setInt(2, d.attempts + 1);
+                upd.setLong(3, now);
+                upd.setString(4, "rejected by webhook");
+                upd.setLong(5, d.id);
+                upd.addBatch();
+            }
+            upd.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        if (!retry.isEmpty() || !rejected.isEmpty()) {
+            System.out.println("[Outbox] " + name + ": " + delivered.size() + " delivered, " + retry.size()
+                + " rescheduled, " + rejected.size() + " rejected.");
+        }
+    }
+
+    /**
+     * Writes pending enqueues and stops draining this outbox. Undelivered rows stay in the table for the next start.
+     */
+    public void close() {
+        OPEN.remove(this);
+        writeLane.close();
+        closeConnection();
+    }
+
+    private synchronized void closeConnection() {
+        closed = true;
+        try { if (insertStmt != null) insertStmt.close(); } catch (Exception ignored) {}
+        try { conn.close(); } catch (Exception ignored) {}
+    }
+}
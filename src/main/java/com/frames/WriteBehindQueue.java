@@ -0,0 +1,211 @@
+package com.frames;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence stage shared by {@link ScanDb} and {@link SignArchiveDb}.
+ * <p>
+ * Producers hand rows to a {@link Lane}; one writer thread groups them into timed commits (every
+ * {@link #COMMIT_INTERVAL_MS} ms or {@link #MAX_BATCH} rows, whichever comes first). Rows with the same key that are
+ * still waiting are coalesced, and producers block once {@link #CAPACITY} rows are pending instead of growing the heap.
+ */
+public final class WriteBehindQueue {
+    public static final int CAPACITY = 2_000;
+    public static final int MAX_BATCH = 500;
+    public static final long COMMIT_INTERVAL_MS = 250;
+
+    private static final long FLUSH_TIMEOUT_MS = 10_000;
+
+    private static final ScanMetrics.Histogram COMMIT = ScanMetrics.get().timer("db.commit");
+    private static final ScanMetrics.Histogram BATCH = ScanMetrics.get().histogram("db.batch_rows");
+
+    private static volatile WriteBehindQueue shared;
+
+    public interface Sink<T> {
+        void write(List<T> rows) throws Exception;
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    private final List<Lane<?>> lanes = new ArrayList<>();
+    private int pending;
+    private int flushRequests;
+    private boolean writing;
+
+    private WriteBehindQueue() {
+        Thread t = new Thread(this::run, "MapScanner-DbWriter");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public static WriteBehindQueue shared() {
+        WriteBehindQueue q = shared;
+        if (q == null) {
+            synchronized (WriteBehindQueue.class) {
+                q = shared;
+                if (q == null) shared = q = new WriteBehindQueue();
+            }
+        }
+        return q;
+    }
+
+    public <T> Lane<T> lane(String name, Sink<T> sink) {
+        Lane<T> lane = new Lane<>(name, sink);
+        lock.lock();
+        try {
+            lanes.add(lane);
+        } finally {
+            lock.unlock();
+        }
+        return lane;
+    }
+
+    public int pendingRows() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public final class Lane<T> {
+        private final String name;
+        private final Sink<T> sink;
+        private final LinkedHashMap<Object, T> rows = new LinkedHashMap<>();
+        // guarded by lock; a closed lane is detached from the writer and takes no rows
+        private boolean closed;
+
+        private Lane(String name, Sink<T> sink) {
+            this.name = name;
+            this.sink = sink;
+        }
+
+        /**
+         * Queues {@code row}, replacing a still-pending row with the same key. Blocks while the queue is full.
+         * Returns false (and counts nothing) once the lane is closed.
+         */
+        public boolean submit(Object key, T row) throws InterruptedException {
+            lock.lock();
+            try {
+                while (!closed && pending >= CAPACITY && !rows.containsKey(key)) {
+                    notFull.await();
+                }
+                if (closed) return false;
+
+                if (rows.put(key, row) == null) pending++;
+                // the first row starts the commit window of an idle writer; a full batch cuts it short
+                if (pending == 1 || pending >= MAX_BATCH) hasWork.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Commits everything pending in this lane now and waits (bounded) until it has been written.
+         */
+        public void flush() {
+            lock.lock();
+            try {
+                flushRequests++;
+                hasWork.signal();
+
+                long remaining = TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MS);
+                while ((!rows.isEmpty() || writing) && remaining > 0) {
+                    remaining = drained.awaitNanos(remaining);
+                }
+                if (!rows.isEmpty()) {
+                    System.out.println("[WriteBehind] Timed out flushing " + rows.size() + " " + name + " row(s).");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                flushRequests--;
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Flushes and detaches this lane; later submits are rejected.
+         */
+        public void close() {
+            flush();
+            lock.lock();
+            try {
+                closed = true;
+                lanes.remove(this);
+                pending -= rows.size();
+                rows.clear();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void run() {
+        List<Runnable> commits = new ArrayList<>();
+
+        while (true) {
+            lock.lock();
+            try {
+                while (pending == 0) hasWork.awaitUninterruptibly();
+
+                // group commit window, cut short by a full batch or an explicit flush
+                long remaining = TimeUnit.MILLISECONDS.toNanos(COMMIT_INTERVAL_MS);
+                while (pending < MAX_BATCH && flushRequests == 0 && remaining > 0) {
+                    try {
+                        remaining = hasWork.awaitNanos(remaining);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+
+                for (Lane<?> lane : lanes) {
+                    if (!lane.rows.isEmpty()) commits.add(take(lane));
+                }
+                writing = true;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            for (Runnable commit : commits) commit.run();
+            commits.clear();
+
+            lock.lock();
+            try {
+                writing = false;
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private <T> Runnable take(Lane<T> lane) {
+        List<T> batch = new ArrayList<>(lane.rows.values());
+        lane.rows.clear();
+        pending -= batch.size();
+
+        return () -> {
+            long started = System.nanoTime();
+            try {
+                lane.sink.write(batch);
+                COMMIT.recordSince(started);
+                BATCH.record(batch.size());
+            } catch (Exception e) {
+                System.out.println("[WriteBehind] Failed to write " + batch.size() + " " + lane.name + " row(s).");
+                e.printStackTrace();
+            }
+        };
+    }
+}
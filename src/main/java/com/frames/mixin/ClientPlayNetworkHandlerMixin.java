@@ -0,0 +1,48 @@
+package com.frames.mixin;
+
+import com.frames.MapRgbScanner;
+import meteordevelopment.meteorclient.systems.modules.Modules;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.EntitySpawnS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityTrackerUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.MapUpdateS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Forwards map colour updates and item-frame spawns/metadata to {@link MapRgbScanner}.
+ * The handlers re-dispatch to the client thread before applying, so TAIL only runs there.
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class ClientPlayNetworkHandlerMixin {
+    @Inject(method = "onMapUpdate", at = @At("TAIL"))
+    private void mapscanner$onMapUpdate(MapUpdateS2CPacket packet, CallbackInfo ci) {
+        // decoration-only updates don't change the image
+        if (packet.updateData().isEmpty()) return;
+
+        MapRgbScanner scanner = activeScanner();
+        if (scanner != null) scanner.onMapColorsReceived(packet.mapId().id());
+    }
+
+    @Inject(method = "onEntitySpawn", at = @At("TAIL"))
+    private void mapscanner$onEntitySpawn(EntitySpawnS2CPacket packet, CallbackInfo ci) {
+        MapRgbScanner scanner = activeScanner();
+        if (scanner != null) scanner.onEntityUpdated(packet.getEntityId());
+    }
+
+    @Inject(method = "onEntityTrackerUpdate", at = @At("TAIL"))
+    private void mapscanner$onEntityTrackerUpdate(EntityTrackerUpdateS2CPacket packet, CallbackInfo ci) {
+        MapRgbScanner scanner = activeScanner();
+        if (scanner != null) scanner.onEntityUpdated(packet.id());
+    }
+
+    private static MapRgbScanner activeScanner() {
+        Modules modules = Modules.get();
+        if (modules == null) return null;
+
+        MapRgbScanner scanner = modules.get(MapRgbScanner.class);
+        return (scanner != null && scanner.isActive()) ? scanner : null;
+    }
+}
@@ -0,0 +1,230 @@
+package com.frames;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless load test: feeds {@link JobCapture} files through the same processors, write-behind stage, outbox and
+ * dispatcher the scanners use, against a local {@link StubWebhookServer}, and reports end-to-end throughput.
+ * <p>
+ * Usage: {@code ReplayDriver <capture>... [--speed max|realtime] [--out dir] [--port n] [--rate N/ms|none]
+ * [--latency-ms n] [--rgb] [--no-stitch] [--timeout-s n]}. Each capture file is replayed on its own thread from a
+ * common start, so a maps and a signs capture from the same session overlap as they did in play.
+ */
+public final class ReplayDriver {
+    private final List<Path> captures = new ArrayList<>();
+    private boolean realtime;
+    private Path out;
+    private int port;
+    private int rateLimit = 5;
+    private long rateWindowMs = 2_000;
+    private long latencyMs;
+    private boolean indexedPng = true;
+    private boolean stitchWalls = true;
+    private long timeoutSeconds = 600;
+
+    private final AtomicLong maps = new AtomicLong();
+    private final AtomicLong signs = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private ReplayDriver() {}
+
+    public static void main(String[] args) throws Exception {
+        ReplayDriver driver = new ReplayDriver();
+        if (!driver.parse(args)) {
+            System.out.println("Usage: ReplayDriver <capture.mscap>... [--speed max|realtime] [--out dir] [--port n]"
+                + " [--rate N/ms|none] [--latency-ms n] [--rgb] [--no-stitch] [--timeout-s n]");
+            System.exit(2);
+        }
+        System.exit(driver.run() ? 0 : 1);
+    }
+
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = i + 1 < args.length;
+
+            switch (arg) {
+                case "--speed" -> {
+                    if (!hasValue) return false;
+                    String speed = args[++i];
+                    if (!speed.equals("max") && !speed.equals("realtime") && !speed.equals("1x")) return false;
+                    realtime = !speed.equals("max");
+                }
+                case "--out" -> {
+                    if (!hasValue) return false;
+                    out = Path.of(args[++i]);
+                }
+                case "--port" -> {
+                    if (!hasValue) return false;
+                    port = Integer.parseInt(args[++i]);
+                }
+                case "--rate" -> {
+                    if (!hasValue) return false;
+                    String rate = args[++i];
+                    if (rate.equals("none")) {
+                        rateLimit = 0;
+                    } else {
+                        String[] parts = rate.split("/");
+                        if (parts.length != 2) return false;
+                        rateLimit = Integer.parseInt(parts[0]);
+                        rateWindowMs = Long.parseLong(parts[1]);
+                    }
+                }
+                case "--latency-ms" -> {
+                    if (!hasValue) return false;
+                    latencyMs = Long.parseLong(args[++i]);
+                }
+                case "--timeout-s" -> {
+                    if (!hasValue) return false;
+                    timeoutSeconds = Long.parseLong(args[++i]);
+                }
+                case "--rgb" -> indexedPng = false;
+                case "--no-stitch" -> stitchWalls = false;
+                default -> {
+                    if (arg.startsWith("--")) return false;
+                    captures.add(Path.of(arg));
+                }
+            }
+        }
+        return !captures.isEmpty();
+    }
+
+    private boolean run() throws Exception {
+        installPalette();
+        if (out == null) out = Files.createTempDirectory("map-scanner-replay");
+
+        ScanPipeline pipeline = ScanPipeline.shared();
+        Path signDbPath = out.resolve("sign_archive.sqlite");
+
+        try (StubWebhookServer stub = new StubWebhookServer(port, rateLimit, rateWindowMs, latencyMs)) {
+            ScanDb db = new ScanDb(out.resolve("map_archive.db"));
+            MapProcessor mapProcessor = new MapProcessor(db, 100_000);
+            SignProcessor signProcessor = new SignProcessor();
+            String url = stub.url();
+
+            System.out.println("[Replay] " + captures.size() + " capture(s), speed " + (realtime ? "1x" : "max")
+                + ", archives in " + out.toAbsolutePath() + ", webhook " + url);
+
+            long start = System.nanoTime();
+            boolean[] failed = new boolean[1];
+
+            List<Thread> feeders = new ArrayList<>();
+            for (Path capture : captures) {
+                Thread t = new Thread(() -> {
+                    try {
+                        feed(capture, start, url, signDbPath, mapProcessor, signProcessor, pipeline);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        failed[0] = true;
+                    }
+                }, "Replay-" + capture.getFileName());
+                feeders.add(t);
+                t.start();
+            }
+            for (Thread t : feeders) t.join();
+
+            long fed = System.nanoTime() - start;
+            boolean drained = awaitDrain(db, pipeline, start + TimeUnit.SECONDS.toNanos(timeoutSeconds));
+            long total = System.nanoTime() - start;
+
+            report(fed, total, drained, stub);
+
+            db.close();
+            SignArchiveDb.close();
+            return drained && !failed[0];
+        }
+    }
+
+    private void feed(Path capture, long start, String url, Path signDbPath,
+                      MapProcessor mapProcessor, SignProcessor signProcessor, ScanPipeline pipeline) throws Exception {
+        long[] firstAt = {-1};
+
+        int read = JobCapture.read(capture, new JobCapture.Handler() {
+            @Override
+            public void maps(long atMs, String dimension, List<MapProcessor.MapJob> jobs) throws Exception {
+                pace(atMs);
+                // the scanners leave work queued while the encode stage is full; do the same here
+                int needed = Math.min(jobs.size(), ScanPipeline.ENCODE_QUEUE_CAPACITY);
+                while (!pipeline.acceptsWork(needed)) Thread.sleep(1);
+
+                mapProcessor.submit(jobs, url, dimension, indexedPng, stitchWalls);
+                maps.addAndGet(jobs.size());
+                batches.incrementAndGet();
+            }
+
+            @Override
+            public void signs(long atMs, List<SignProcessor.SignJob> jobs) throws Exception {
+                pace(atMs);
+                signProcessor.submit(jobs, url, signDbPath);
+                signs.addAndGet(jobs.size());
+                batches.incrementAndGet();
+            }
+
+            private void pace(long atMs) throws InterruptedException {
+                if (firstAt[0] < 0) firstAt[0] = atMs;
+                if (!realtime) return;
+
+                long due = start + TimeUnit.MILLISECONDS.toNanos(atMs - firstAt[0]);
+                long wait = due - System.nanoTime();
+                if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        });
+
+        System.out.println("[Replay] " + capture.getFileName() + ": " + read + " batch(es) fed.");
+    }
+
+    /**
+     * Waits until every stage is empty on two consecutive checks.
+     */
+    private boolean awaitDrain(ScanDb db, ScanPipeline pipeline, long deadline) throws Exception {
+        int idleChecks = 0;
+        while (System.nanoTime() < deadline) {
+            // map batches finish in order on the finish thread, sign batches on the background thread
+            pipeline.finish(() -> {}).join();
+            pipeline.background(() -> {}).join();
+
+            WebhookOutbox signOutbox = SignArchiveDb.outbox();
+            boolean idle = pipeline.queuedTasks() == 0
+                && WriteBehindQueue.shared().pendingRows() == 0
+                && WebhookDispatcher.get().pending() == 0
+                && db.outbox().pendingCount() == 0
+                && (signOutbox == null || signOutbox.pendingCount() == 0);
+
+            idleChecks = idle ? idleChecks + 1 : 0;
+            if (idleChecks >= 2) return true;
+            Thread.sleep(250);
+        }
+        System.out.println("[Replay] Timed out waiting for the pipeline to drain.");
+        return false;
+    }
+
+    private void report(long fedNanos, long totalNanos, boolean drained, StubWebhookServer stub) {
+        double fedS = fedNanos / 1e9;
+        double totalS = totalNanos / 1e9;
+
+        System.out.println("[Replay] ----------------------------------------");
+        System.out.printf(Locale.ROOT, "[Replay] %d map(s), %d sign(s) in %d batch(es)%n", maps.get(), signs.get(), batches.get());
+        System.out.printf(Locale.ROOT, "[Replay] fed in %.2fs, %s in %.2fs%n", fedS, drained ? "drained" : "gave up", totalS);
+        System.out.printf(Locale.ROOT, "[Replay] end-to-end: %.1f maps/s, %.1f signs/s%n",
+            maps.get() / totalS, signs.get() / totalS);
+        System.out.printf(Locale.ROOT, "[Replay] webhook: %d request(s), %d accepted, %d rate limited, %.1f MiB%n",
+            stub.requests.get(), stub.accepted.get(), stub.rateLimited.get(), stub.bytes.get() / (1024.0 * 1024.0));
+        for (String line : ScanMetrics.get().summary()) System.out.println("[Replay] " + line);
+    }
+
+    private static void installPalette() {
+        try {
+            MapPalette.renderColors();
+        } catch (Throwable t) {
+            // indexed PNGs compress the same whatever the palette holds; a grey ramp is enough
+            MapPalette.install(MapPalette.build(index -> index * 0x010101));
+            System.out.println("[Replay] Minecraft map colours unavailable; using a stub palette.");
+        }
+    }
+}
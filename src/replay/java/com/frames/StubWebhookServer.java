@@ -0,0 +1,114 @@
+package com.frames;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a Discord webhook, used by {@link ReplayDriver}.
+ * <p>
+ * Accepts any POST, optionally after a fixed delay, and enforces a fixed-window rate limit with Discord's
+ * {@code X-RateLimit-*} headers and {@code Retry-After} on 429, so the dispatcher's pacing is exercised too.
+ */
+final class StubWebhookServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8, r -> {
+        Thread t = new Thread(r, "StubWebhook");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int limit;
+    private final long windowMs;
+    private final long latencyMs;
+
+    private long windowEndMs;
+    private int remaining;
+
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong accepted = new AtomicLong();
+    final AtomicLong rateLimited = new AtomicLong();
+    final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * @param limit requests allowed per window, or 0 for no limit
+     */
+    StubWebhookServer(int port, int limit, long windowMs, long latencyMs) throws IOException {
+        this.limit = limit;
+        this.windowMs = Math.max(1, windowMs);
+        this.latencyMs = latencyMs;
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/webhooks/0/replay";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            requests.incrementAndGet();
+            bytes.addAndGet(body.transferTo(OutputStream.nullOutputStream()));
+
+            if (latencyMs > 0) Thread.sleep(latencyMs);
+
+            if (limit <= 0) {
+                accepted.incrementAndGet();
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+
+            int left;
+            long resetMs;
+            boolean allowed;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (now >= windowEndMs) {
+                    windowEndMs = now + windowMs;
+                    remaining = limit;
+                }
+                allowed = remaining > 0;
+                if (allowed) remaining--;
+                left = remaining;
+                resetMs = windowEndMs - now;
+            }
+
+            String resetAfter = String.format(Locale.ROOT, "%.3f", resetMs / 1000.0);
+            var headers = exchange.getResponseHeaders();
+            headers.set("X-RateLimit-Limit", Integer.toString(limit));
+            headers.set("X-RateLimit-Remaining", Integer.toString(left));
+            headers.set("X-RateLimit-Reset-After", resetAfter);
+
+            if (allowed) {
+                accepted.incrementAndGet();
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                rateLimited.incrementAndGet();
+                byte[] json = ("{\"message\":\"You are being rate limited.\",\"retry_after\":" + resetAfter + "}").getBytes();
+                headers.set("Retry-After", resetAfter);
+                headers.set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(429, json.length);
+                exchange.getResponseBody().write(json);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,98 @@
+package com.frames;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookOutboxTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void deliversWhileTheOutboxStaysOpen() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            received.countDown();
+        });
+        server.start();
+
+        WebhookOutbox outbox = new WebhookOutbox(dir.resolve("archive.db"), "test");
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/webhook";
+            assertTrue(outbox.enqueue(WebhookOutbox.Entry.file(url, "map_1.png", new byte[] {1, 2, 3}, "Map 1")));
+
+            // no flush and no close: the write-behind commit and the drainer have to deliver on their own
+            assertTrue(received.await(5, TimeUnit.SECONDS), "entry was not delivered while the outbox was open");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (outbox.pendingCount() > 0 && System.nanoTime() < deadline) Thread.sleep(50);
+            assertEquals(0, outbox.pendingCount());
+        } finally {
+            outbox.close();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void slowWebhookDoesNotHoldBackOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/slow", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        CountDownLatch fastReceived = new CountDownLatch(1);
+        server.createContext("/fast", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            fastReceived.countDown();
+        });
+        ExecutorService handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.start();
+
+        WebhookOutbox outbox = new WebhookOutbox(dir.resolve("archive.db"), "test-slow");
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            assertTrue(outbox.enqueue(WebhookOutbox.Entry.embed(base + "/slow", "slow")));
+            assertTrue(outbox.enqueue(WebhookOutbox.Entry.embed(base + "/fast", "fast")));
+
+            // the fast row is recorded while the slow one is still waiting on its response
+            assertTrue(fastReceived.await(5, TimeUnit.SECONDS), "fast entry was not sent");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (outbox.pendingCount() > 1 && System.nanoTime() < deadline) Thread.sleep(50);
+            assertEquals(1, outbox.pendingCount());
+
+            release.countDown();
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (outbox.pendingCount() > 0 && System.nanoTime() < deadline) Thread.sleep(50);
+            assertEquals(0, outbox.pendingCount());
+        } finally {
+            release.countDown();
+            outbox.close();
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+    }
+}
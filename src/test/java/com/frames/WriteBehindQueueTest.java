@@ -0,0 +1,40 @@
+package com.frames;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+    @Test
+    void singleRowCommitsWithinTheCommitWindow() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        List<String> rows = new CopyOnWriteArrayList<>();
+        WriteBehindQueue.Lane<String> lane = WriteBehindQueue.shared().lane("test-single", batch -> {
+            rows.addAll(batch);
+            written.countDown();
+        });
+
+        try {
+            assertTrue(lane.submit("key", "row"));
+            assertTrue(written.await(2 * WriteBehindQueue.COMMIT_INTERVAL_MS, TimeUnit.MILLISECONDS),
+                "a lone row must commit without a flush");
+            assertEquals(List.of("row"), rows);
+        } finally {
+            lane.close();
+        }
+    }
+
+    @Test
+    void closedLaneRejectsSubmits() throws Exception {
+        WriteBehindQueue.Lane<String> lane = WriteBehindQueue.shared().lane("test-closed", batch -> {});
+        lane.close();
+        assertFalse(lane.submit("key", "row"));
+    }
+}